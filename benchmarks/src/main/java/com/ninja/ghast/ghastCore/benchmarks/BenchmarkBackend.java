@@ -0,0 +1,87 @@
+package com.ninja.ghast.ghastCore.benchmarks;
+
+import com.ninja.ghast.ghastCore.DatabaseManager;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Builds a {@link DatabaseManager} against a throwaway database: SQLite in a temp folder,
+ * or H2 in MySQL mode standing in for MySQL so the MySQL dialect path is exercised.
+ */
+final class BenchmarkBackend implements AutoCloseable {
+    static final String NAMESPACE = "bench";
+
+    final DatabaseManager db;
+    final YamlConfiguration config;
+    private final Path dataFolder;
+
+    private BenchmarkBackend(DatabaseManager db, YamlConfiguration config, Path dataFolder) {
+        this.db = db;
+        this.config = config;
+        this.dataFolder = dataFolder;
+    }
+
+    static YamlConfiguration config(String backend, Path dataFolder) {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("logging.level", "WARN");
+        config.set("database.pool.max-size", 10);
+        config.set("caching.write-behind.enabled", false);
+        if (backend.equals("mysql")) {
+            config.set("database.type", "mysql");
+            config.set("database.mysql.jdbc-url", "jdbc:h2:file:" + dataFolder.resolve("bench")
+                    + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE");
+            config.set("database.mysql.username", "sa");
+            config.set("database.mysql.password", "");
+        } else {
+            config.set("database.type", "sqlite");
+        }
+        return config;
+    }
+
+    static BenchmarkBackend open(String backend) throws IOException {
+        return open(backend, Map.of());
+    }
+
+    static BenchmarkBackend open(String backend, Map<String, Object> overrides) throws IOException {
+        Path dataFolder = Files.createTempDirectory("ghastcore-bench-");
+        YamlConfiguration config = config(backend, dataFolder);
+        overrides.forEach(config::set);
+        DatabaseManager db = new DatabaseManager(config, dataFolder.toFile(), Logger.getLogger("GhastCoreBench"));
+        return new BenchmarkBackend(db, config, dataFolder);
+    }
+
+    /**
+     * Creates {@code players} players with {@code keys} keys in each of {@code namespaces} namespaces.
+     */
+    UUID[] seed(int players, int namespaces, int keys) {
+        UUID[] uuids = new UUID[players];
+        for (int p = 0; p < players; p++) {
+            uuids[p] = UUID.randomUUID();
+            for (int n = 0; n < namespaces; n++) {
+                Map<String, String> values = new HashMap<>();
+                for (int k = 0; k < keys; k++) {
+                    values.put("key" + k, String.valueOf(p * 31 + k));
+                }
+                db.storePlayerDataBatch(uuids[p].toString(), namespaces == 1 ? NAMESPACE : NAMESPACE + n, values);
+            }
+        }
+        return uuids;
+    }
+
+    @Override
+    public void close() throws IOException {
+        db.closeConnection();
+        try (Stream<Path> files = Files.walk(dataFolder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
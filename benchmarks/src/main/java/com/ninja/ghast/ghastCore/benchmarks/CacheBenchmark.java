@@ -0,0 +1,107 @@
+package com.ninja.ghast.ghastCore.benchmarks;
+
+import com.ninja.ghast.ghastCore.DataKey;
+import com.ninja.ghast.ghastCore.GhastCoreAPIImpl;
+import com.ninja.ghast.ghastCore.LogManager;
+import com.ninja.ghast.ghastCore.PlayerDataCache;
+import com.ninja.ghast.ghastCore.PlayerDataManagerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Reads through the public API and the player data cache, comparing cache hits with misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheBenchmark {
+    private static final int PLAYERS = 1000;
+    private static final int KEYS = 10;
+
+    @Param({"sqlite", "mysql"})
+    public String backend;
+
+    private BenchmarkBackend db;
+    private PlayerDataCache cache;
+    private PlayerDataManagerImpl playerData;
+    private GhastCoreAPIImpl api;
+    private ExecutorService executor;
+    private UUID[] players;
+    private String[] playerIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        db = BenchmarkBackend.open(backend);
+        players = db.seed(PLAYERS, 1, KEYS);
+        playerIds = new String[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            playerIds[i] = players[i].toString();
+        }
+        cache = new PlayerDataCache(PLAYERS * KEYS * 2L, 3600, 60);
+        playerData = new PlayerDataManagerImpl(() -> db.db, db.config, Logger.getLogger("GhastCoreBench"),
+                db.db.getMetrics(), true, cache);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        api = new GhastCoreAPIImpl(playerData, new LogManager(Logger.getLogger("GhastCoreBench"), db.config), executor, Runnable::run);
+        for (UUID player : players) {
+            for (int k = 0; k < KEYS; k++) {
+                playerData.getData(player, BenchmarkBackend.NAMESPACE, "key" + k);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdown();
+        db.close();
+    }
+
+    @Benchmark
+    public String cacheHit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return api.getPlayerData(playerIds[random.nextInt(PLAYERS)], BenchmarkBackend.NAMESPACE, "key" + random.nextInt(KEYS));
+    }
+
+    @Benchmark
+    public String cacheMiss() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String player = playerIds[random.nextInt(PLAYERS)];
+        String key = "key" + random.nextInt(KEYS);
+        cache.invalidate(new DataKey(player, BenchmarkBackend.NAMESPACE, key));
+        return api.getPlayerData(player, BenchmarkBackend.NAMESPACE, key);
+    }
+
+    @Benchmark
+    public String negativeHit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return api.getPlayerData(playerIds[random.nextInt(PLAYERS)], BenchmarkBackend.NAMESPACE, "missing");
+    }
+
+    @Benchmark
+    public void store() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        api.storePlayerData(playerIds[random.nextInt(PLAYERS)], BenchmarkBackend.NAMESPACE,
+                "key" + random.nextInt(KEYS), String.valueOf(random.nextInt()));
+    }
+}
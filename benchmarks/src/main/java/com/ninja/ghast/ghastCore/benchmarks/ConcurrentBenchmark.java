@@ -0,0 +1,83 @@
+package com.ninja.ghast.ghastCore.benchmarks;
+
+import com.ninja.ghast.ghastCore.PlayerDataCache;
+import com.ninja.ghast.ghastCore.PlayerDataManagerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Concurrent readers and writers on the cached path. The default is 3 readers and 1 writer;
+ * use {@code -tg readers,writers} (e.g. {@code -tg 12,4}) to try other thread counts.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentBenchmark {
+    private static final int PLAYERS = 1000;
+    private static final int KEYS = 10;
+
+    @Param({"sqlite", "mysql"})
+    public String backend;
+
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    private BenchmarkBackend db;
+    private PlayerDataManagerImpl playerData;
+    private UUID[] players;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        db = BenchmarkBackend.open(backend, Map.of("caching.write-behind.enabled", writeBehind));
+        players = db.seed(PLAYERS, 1, KEYS);
+        // Cache holds a quarter of the data so readers see a mix of hits and misses
+        PlayerDataCache cache = new PlayerDataCache(PLAYERS * KEYS / 4, 3600, 60);
+        playerData = new PlayerDataManagerImpl(() -> db.db, db.config, Logger.getLogger("GhastCoreBench"),
+                db.db.getMetrics(), true, cache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        db.close();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public String reader() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return playerData.getData(players[random.nextInt(PLAYERS)], BenchmarkBackend.NAMESPACE, "key" + random.nextInt(KEYS));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void writer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        playerData.storeData(players[random.nextInt(PLAYERS)], BenchmarkBackend.NAMESPACE,
+                "key" + random.nextInt(KEYS), String.valueOf(random.nextInt()));
+    }
+}
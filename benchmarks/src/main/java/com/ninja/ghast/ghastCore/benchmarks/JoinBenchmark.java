@@ -0,0 +1,84 @@
+package com.ninja.ghast.ghastCore.benchmarks;
+
+import com.ninja.ghast.ghastCore.PlayerDataCache;
+import com.ninja.ghast.ghastCore.PlayerDataManagerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Cost of a player joining with 15 extensions' worth of data: one bulk preload
+ * versus loading each key lazily on first use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoinBenchmark {
+    private static final int PLAYERS = 500;
+    private static final int NAMESPACES = 15;
+    private static final int KEYS = 5;
+
+    @Param({"sqlite", "mysql"})
+    public String backend;
+
+    private BenchmarkBackend db;
+    private PlayerDataManagerImpl playerData;
+    private UUID[] players;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        db = BenchmarkBackend.open(backend);
+        players = db.seed(PLAYERS, NAMESPACES, KEYS);
+        PlayerDataCache cache = new PlayerDataCache(100000, 3600, 60);
+        playerData = new PlayerDataManagerImpl(() -> db.db, db.config, Logger.getLogger("GhastCoreBench"),
+                db.db.getMetrics(), true, cache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        db.close();
+    }
+
+    @Benchmark
+    public void preloadThenRead(Blackhole blackhole) {
+        UUID player = players[ThreadLocalRandom.current().nextInt(PLAYERS)];
+        playerData.clearCache(player);
+        playerData.preload(player);
+        readAll(player, blackhole);
+    }
+
+    @Benchmark
+    public void lazyRead(Blackhole blackhole) {
+        UUID player = players[ThreadLocalRandom.current().nextInt(PLAYERS)];
+        playerData.clearCache(player);
+        readAll(player, blackhole);
+    }
+
+    private void readAll(UUID player, Blackhole blackhole) {
+        for (int n = 0; n < NAMESPACES; n++) {
+            for (int k = 0; k < KEYS; k++) {
+                blackhole.consume(playerData.getData(player, BenchmarkBackend.NAMESPACE + n, "key" + k));
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ninja.ghast.ghastCore.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-key reads and writes straight against {@code DatabaseManager}, with no cache in front.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    @Param({"sqlite", "mysql"})
+    public String backend;
+
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    private BenchmarkBackend db;
+    private UUID[] players;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        db = BenchmarkBackend.open(backend, Map.of("caching.write-behind.enabled", writeBehind));
+        players = db.seed(1000, 1, 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        db.close();
+    }
+
+    @Benchmark
+    public Object getSingleKey() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return db.db.getPlayerData(players[random.nextInt(players.length)].toString(),
+                BenchmarkBackend.NAMESPACE, "key" + random.nextInt(10));
+    }
+
+    @Benchmark
+    public void storeSingleKey() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        db.db.storePlayerData(players[random.nextInt(players.length)].toString(),
+                BenchmarkBackend.NAMESPACE, "key" + random.nextInt(10), String.valueOf(random.nextInt()));
+    }
+}
@@ -0,0 +1,183 @@
+package com.ninja.ghast.ghastCore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the caches of servers sharing one database coherent. Every write is logged to
+ * data_changes in the same transaction, and each server polls the log from its cursor and
+ * invalidates (or reloads) the keys other servers changed.
+ * <p>
+ * Ids are assigned when a change is inserted but become visible when its transaction commits,
+ * so a smaller id can show up after a larger one. Missing ids below the newest seen change are
+ * held as gaps, and the cursor stays below them until they appear or time out (rolled back
+ * transactions leave gaps that never fill).
+ */
+public class CacheCoherence {
+    private static final int BATCH_SIZE = 1000;
+    // Auto-increment jumps larger than this are id allocation, not changes still in flight
+    private static final long MAX_GAP = 10_000;
+
+    private final Supplier<DatabaseManager> databaseManager;
+    private final PlayerDataCache cache;
+    private final Rankings rankings;
+    private final LogManager logger;
+    private final MetricsRegistry metrics;
+    private final boolean refresh;
+    private final long pollMillis;
+    private final long gapTimeoutNanos;
+    private final long retentionMillis;
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+    private final Set<Long> appliedAboveCursor = new HashSet<>();
+    private ScheduledExecutorService executor;
+    private long cursor = -1;
+    private long lastPoll;
+    private long lastPrune;
+
+    public CacheCoherence(GhastCore plugin, PlayerDataCache cache, Rankings rankings) {
+        this.databaseManager = plugin::getDatabaseManager;
+        this.cache = cache;
+        this.rankings = rankings;
+        this.logger = plugin.getLogManager();
+        this.metrics = plugin.getMetrics();
+        this.refresh = plugin.getConfig().getString("caching.coherence.mode", "invalidate").equalsIgnoreCase("refresh");
+        this.pollMillis = Math.max(50, plugin.getConfig().getLong("caching.coherence.poll-interval-ms", 500));
+        this.gapTimeoutNanos = TimeUnit.SECONDS.toNanos(Math.max(1, plugin.getConfig().getLong("caching.coherence.gap-timeout-seconds", 5)));
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(Math.max(1, plugin.getConfig().getLong("caching.coherence.retention-minutes", 10)));
+    }
+
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GhastCore-Coherence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A random phase staggers the servers' prunes, so they rarely run at once
+        lastPrune = System.currentTimeMillis() - ThreadLocalRandom.current().nextLong(retentionMillis / 4);
+        executor.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void poll() {
+        try {
+            DatabaseManager db = databaseManager.get();
+            long now = System.currentTimeMillis();
+            if (cursor < 0) {
+                // Nothing is cached yet, so only changes from now on matter
+                cursor = db.latestChangeId();
+            } else if (now - lastPoll > retentionMillis / 2) {
+                // Changes may have been pruned before this server saw them
+                logger.warning("Change log not read for {}s, clearing the player data cache", (now - lastPoll) / 1000);
+                cache.invalidateAll();
+                gaps.clear();
+                appliedAboveCursor.clear();
+                cursor = db.latestChangeId();
+            }
+
+            List<DataChange> changes;
+            do {
+                changes = db.readChanges(cursor, BATCH_SIZE);
+                apply(db, changes);
+            } while (changes.size() == BATCH_SIZE && gaps.isEmpty());
+            lastPoll = now;
+
+            if (now - lastPrune > retentionMillis / 4) {
+                lastPrune = now;
+                db.pruneChanges(retentionMillis);
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Failed to poll the change log: " + e.getMessage());
+        }
+    }
+
+    private void apply(DatabaseManager db, List<DataChange> changes) {
+        long nowNanos = System.nanoTime();
+        long expected = cursor + 1;
+        List<DataKey> changed = new ArrayList<>();
+        for (DataChange change : changes) {
+            if (change.id() > expected && change.id() - expected <= MAX_GAP) {
+                for (long id = expected; id < change.id(); id++) {
+                    if (!appliedAboveCursor.contains(id)) {
+                        gaps.putIfAbsent(id, nowNanos);
+                    }
+                }
+            }
+            expected = Math.max(expected, change.id() + 1);
+            gaps.remove(change.id());
+            if (appliedAboveCursor.add(change.id()) && change.nodeId() != db.getNodeId()) {
+                changed.add(change.key());
+            }
+        }
+
+        gaps.values().removeIf(noticed -> nowNanos - noticed > gapTimeoutNanos);
+        long newest = changes.isEmpty() ? cursor : changes.get(changes.size() - 1).id();
+        cursor = gaps.isEmpty() ? Math.max(cursor, newest) : gaps.firstKey() - 1;
+        for (Iterator<Long> it = appliedAboveCursor.iterator(); it.hasNext(); ) {
+            if (it.next() <= cursor) {
+                it.remove();
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            invalidate(db, changed);
+        }
+    }
+
+    /**
+     * Invalidates or refreshes the changed keys. Ranked keys are always read again, since their
+     * index holds every player's score and not only the cached ones; a null expected value marks
+     * a key reloaded only for its ranking.
+     */
+    private void invalidate(DatabaseManager db, List<DataKey> changed) {
+        Map<String, Map<String, Map<String, Optional<Object>>>> reload = new HashMap<>();
+        for (DataKey key : changed) {
+            Optional<Object> value = refresh ? cache.getIfPresent(key) : null;
+            if (value == null) {
+                cache.invalidate(key);
+                metrics.counter("cache_coherence", "invalidate", key.namespace()).increment();
+            }
+            if (value != null || rankings.get(key.namespace(), key.key()) != null) {
+                reload.computeIfAbsent(key.playerUUID(), k -> new HashMap<>())
+                        .computeIfAbsent(key.namespace(), k -> new HashMap<>())
+                        .put(key.key(), value);
+            }
+        }
+
+        reload.forEach((playerUUID, namespaces) -> namespaces.forEach((namespace, values) -> {
+            Map<String, Object> loaded = db.getPlayerDataBatch(playerUUID, namespace, values.keySet());
+            UUID player = UUID.fromString(playerUUID);
+            int refreshed = 0;
+            for (Map.Entry<String, Optional<Object>> entry : values.entrySet()) {
+                Object value = loaded.get(entry.getKey());
+                rankings.update(player, namespace, entry.getKey(), value);
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                refreshed++;
+                DataKey dataKey = new DataKey(playerUUID, namespace, entry.getKey());
+                if (!cache.replace(dataKey, entry.getValue(), value)) {
+                    cache.invalidate(dataKey);
+                }
+            }
+            metrics.counter("cache_coherence", "refresh", namespace).add(refreshed);
+        }));
+    }
+}
@@ -0,0 +1,104 @@
+package com.ninja.ghast.ghastCore;
+
+import com.ninja.ghast.ghastCore.api.DataCodec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codecs registered for custom value types, looked up by id when decoding and by class when encoding.
+ */
+public class CodecRegistry {
+    private final Map<String, DataCodec<?>> byId = new ConcurrentHashMap<>();
+    private final Map<Class<?>, DataCodec<?>> byType = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a codec, replacing an earlier one with the same id and type. Types are compared by
+     * name, so an extension reloaded in a new class loader replaces its old codec instead of
+     * leaving it pinned in either map.
+     */
+    public synchronized void register(DataCodec<?> codec) {
+        DataCodec<?> existing = byId.get(codec.id());
+        if (existing != null && !existing.type().getName().equals(codec.type().getName())) {
+            throw new IllegalArgumentException("Codec id " + codec.id() + " is already registered for " + existing.type().getName());
+        }
+        if (existing != null) {
+            byType.remove(existing.type(), existing);
+        }
+        byId.put(codec.id(), codec);
+        byType.put(codec.type(), codec);
+    }
+
+    /**
+     * Converts a value to a form the database layer can store, encoding custom types with their codec.
+     */
+    public Object toStorable(Object value) {
+        if (value == null || DataValues.isNative(value)) {
+            return value;
+        }
+        DataCodec<?> codec = codecFor(value.getClass());
+        if (codec == null) {
+            throw new IllegalArgumentException("No codec registered for " + value.getClass().getName());
+        }
+        return new CustomValue(codec.id(), encode(codec, value));
+    }
+
+    /**
+     * Decodes a stored custom value if its codec is registered, otherwise returns the value unchanged.
+     */
+    public Object resolve(Object value) {
+        if (value instanceof CustomValue custom) {
+            DataCodec<?> codec = byId.get(custom.codecId());
+            if (codec != null) {
+                return codec.decode(custom.payload());
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value as {@code type}, or null if it is missing or cannot be converted.
+     */
+    public <T> T convert(Object value, Class<T> type) {
+        value = resolve(value);
+        if (value == null) {
+            return null;
+        }
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        }
+        Object converted = null;
+        if (type == String.class) {
+            converted = DataValues.asString(value);
+        } else if (type == Integer.class) {
+            long number = DataValues.asLong(value, Long.MIN_VALUE);
+            converted = number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE ? (int) number : null;
+        } else if (type == Long.class) {
+            long number = DataValues.asLong(value, Long.MIN_VALUE);
+            converted = number != Long.MIN_VALUE ? number : null;
+        } else if (type == Double.class) {
+            double number = DataValues.asDouble(value, Double.NaN);
+            converted = Double.isNaN(number) ? null : number;
+        } else if (type == Boolean.class) {
+            converted = DataValues.asBoolean(value);
+        }
+        return type.cast(converted);
+    }
+
+    private DataCodec<?> codecFor(Class<?> type) {
+        DataCodec<?> codec = byType.get(type);
+        if (codec == null) {
+            for (DataCodec<?> candidate : byType.values()) {
+                if (candidate.type().isAssignableFrom(type)) {
+                    return candidate;
+                }
+            }
+        }
+        return codec;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> byte[] encode(DataCodec<T> codec, Object value) {
+        return codec.encode((T) value);
+    }
+}
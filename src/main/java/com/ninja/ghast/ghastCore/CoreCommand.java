@@ -5,13 +5,25 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
 public class CoreCommand implements CommandExecutor {
     private final GhastCore plugin;
     private final ExtensionManager extensionManager;
+    private final DataTransfer transfer;
 
     public CoreCommand(GhastCore plugin, ExtensionManager extensionManager) {
         this.plugin = plugin;
         this.extensionManager = extensionManager;
+        this.transfer = new DataTransfer(plugin.getConfig(), plugin.getLogManager());
     }
 
     @Override
@@ -33,15 +45,24 @@ public class CoreCommand implements CommandExecutor {
             sender.sendMessage("§e/gcore load <extension> §7- Load a lazy-loaded extension");
             sender.sendMessage("§e/gcore scan §7- Rescan extension folder");
             sender.sendMessage("§e/gcore load-all §7- Load all pending extensions");
+            sender.sendMessage("§e/gcore stats §7- Show cache, pool and query statistics");
+            sender.sendMessage("§e/gcore export <name> §7- Export player data to transfers/<name>.gz");
+            sender.sendMessage("§e/gcore import <name> §7- Import player data from transfers/<name>.gz");
+            sender.sendMessage("§e/gcore migrate <sqlite|mysql> §7- Copy player data to the other database type");
+            sender.sendMessage("§e/gcore transfer-cancel §7- Stop the running transfer; run it again to resume");
             return true;
         }
 
         switch (args[0].toLowerCase()) {
             case "list":
                 sender.sendMessage("§6Loaded Extensions:");
+                Map<String, Long> footprint = cacheFootprint();
                 for (ExtensionInfo info : extensionManager.getExtensions().values()) {
+                    ExtensionStats stats = extensionManager.getStats(info.name);
                     sender.sendMessage("§e- " + info.name + " v" + info.version +
-                            " by " + info.authors);
+                            " by " + info.authors + " §7(" + stats.getQueries().getCount() + " queries, " +
+                            millis(stats.getQueries().getSumNanos()) + " in db, " +
+                            kilobytes(footprint.getOrDefault(info.namespace, 0L)) + " cached)");
                 }
                 if (plugin.getConfig().getBoolean("extensions.lazy-load", false)) {
                     sender.sendMessage("§6Pending Extensions:");
@@ -52,18 +73,19 @@ public class CoreCommand implements CommandExecutor {
                 return true;
 
             case "register":
-                extensionManager.loadAllPending();
+                extensionManager.loadAllExtensions();
                 sender.sendMessage("§aExtensions registered");
                 return true;
 
             case "reload":
                 try {
                     plugin.reloadConfig();
+                    plugin.getLogManager().setLevel(LogManager.Level.parse(plugin.getConfig().getString("logging.level", "INFO")));
                     plugin.getLogger().info("Configuration reloaded");
                     plugin.getDatabaseManager().closeConnection();
                     plugin.setDatabaseManager(new DatabaseManager(plugin));
                     plugin.getLogger().info("Database connection pool reinitialized");
-                    extensionManager.loadAllPending();
+                    extensionManager.loadAllExtensions();
                     plugin.getLogger().info("Extensions reloaded");
                     sender.sendMessage("§aGhastCore reloaded");
                 } catch (Exception e) {
@@ -87,13 +109,24 @@ public class CoreCommand implements CommandExecutor {
                     return true;
                 }
                 ExtensionInfo info = extensionManager.getExtensions().get(args[1].toLowerCase());
+                boolean loaded = info != null;
+                if (info == null) {
+                    info = extensionManager.getPendingExtensions().get(args[1].toLowerCase());
+                }
                 if (info != null) {
                     sender.sendMessage("§6Extension Info:");
                     sender.sendMessage("§eName: §f" + info.name);
                     sender.sendMessage("§eAuthors: §f" + info.authors);
                     sender.sendMessage("§eVersion: §f" + info.version);
                     sender.sendMessage("§eNamespace: §f" + info.namespace);
-                    sender.sendMessage("§eStatus: §aRegistered");
+                    sender.sendMessage(loaded ? "§eStatus: §aRegistered" : "§eStatus: §ePending (loads on first use)");
+                    ExtensionStats stats = extensionManager.getStats(info.name);
+                    sender.sendMessage("§eQueries: §f" + summary(stats.getQueries()) +
+                            ", total " + millis(stats.getQueries().getSumNanos()));
+                    sender.sendMessage("§eWritten: §f" + stats.getRowsWritten() + " rows, " + kilobytes(stats.getBytesWritten()));
+                    sender.sendMessage("§eTasks: §f" + stats.getSyncTasks() + " sync (" + millis(stats.getSyncTaskNanos()) +
+                            "), " + stats.getAsyncTasks() + " async (" + millis(stats.getAsyncTaskNanos()) + ")");
+                    sender.sendMessage("§eCache memory: §f~" + kilobytes(cacheFootprint().getOrDefault(info.namespace, 0L)));
                 } else {
                     sender.sendMessage("§cExtension not found: " + args[1]);
                 }
@@ -121,9 +154,183 @@ public class CoreCommand implements CommandExecutor {
                 sender.sendMessage("§aAll pending extensions loaded");
                 return true;
 
+            case "stats":
+                sendStats(sender);
+                return true;
+
+            case "export":
+            case "import":
+            case "migrate":
+                startTransfer(sender, args);
+                return true;
+
+            case "transfer-cancel":
+                if (transfer.isRunning()) {
+                    transfer.cancel();
+                    sender.sendMessage("§eStopping the transfer after its current batch");
+                } else {
+                    sender.sendMessage("§cNo transfer is running");
+                }
+                return true;
+
             default:
                 sender.sendMessage("§cUnknown command. Use /gcore help");
                 return true;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs an export, import or migration on the async pool, reporting progress every few seconds.
+     */
+    private void startTransfer(CommandSender sender, String[] args) {
+        String operation = args[0].toLowerCase();
+        if (args.length < 2) {
+            sender.sendMessage(operation.equals("migrate") ? "§cUsage: /gcore migrate <sqlite|mysql>"
+                    : "§cUsage: /gcore " + operation + " <name>");
+            return;
+        }
+        String argument = args[1].toLowerCase();
+        if (operation.equals("migrate")) {
+            if (!argument.equals("sqlite") && !argument.equals("mysql")) {
+                sender.sendMessage("§cUnknown database type: " + args[1]);
+                return;
+            }
+            if (argument.equalsIgnoreCase(plugin.getConfig().getString("database.type", "sqlite"))) {
+                sender.sendMessage("§cAlready using " + argument);
+                return;
+            }
+        } else if (!args[1].matches("[A-Za-z0-9_-]+")) {
+            sender.sendMessage("§cNames may only contain letters, digits, - and _");
+            return;
+        }
+
+        File folder = new File(plugin.getDataFolder(), "transfers");
+        File file = new File(folder, args[1] + ".gz");
+        if (operation.equals("import") && !file.exists()) {
+            sender.sendMessage("§cFile not found: transfers/" + file.getName());
+            return;
+        }
+        if (!transfer.tryStart()) {
+            sender.sendMessage("§cAnother transfer is running");
+            return;
+        }
+
+        String verb = switch (operation) {
+            case "export" -> "Exported";
+            case "import" -> "Imported";
+            default -> "Copied";
+        };
+        long[] lastReport = {System.nanoTime()};
+        DataTransfer.Progress progress = (rows, fraction) -> {
+            long now = System.nanoTime();
+            if (now - lastReport[0] >= TimeUnit.SECONDS.toNanos(5)) {
+                lastReport[0] = now;
+                reply(sender, "§7" + verb + " " + rows + " rows" +
+                        (fraction >= 0 ? String.format(" (%.1f%%)", fraction * 100) : ""));
+            }
+        };
+        sender.sendMessage("§eStarted " + operation + (operation.equals("migrate") ? " to " + argument : " of " + file.getName()));
+        plugin.getCoreTasks().runAsync(() -> {
+            long start = System.nanoTime();
+            DatabaseManager source = plugin.getDatabaseManager();
+            try {
+                long rows;
+                if (operation.equals("export")) {
+                    rows = transfer.export(source, file, progress);
+                } else if (operation.equals("import")) {
+                    rows = transfer.importFile(file, source, progress);
+                    PlayerDataManagerImpl playerData = (PlayerDataManagerImpl) plugin.getPlayerDataManager();
+                    playerData.getCache().invalidateAll();
+                    playerData.rebuildRankings();
+                } else {
+                    DatabaseManager target = DataTransfer.openDatabase(plugin, argument);
+                    try {
+                        rows = transfer.copy(source, target, new File(folder, "migrate-" + argument + ".checkpoint"), progress);
+                    } finally {
+                        target.closeConnection();
+                    }
+                }
+                long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+                if (transfer.isCancelled()) {
+                    reply(sender, "§eTransfer stopped after " + rows + " rows; run the command again to resume");
+                } else if (operation.equals("migrate")) {
+                    reply(sender, "§a" + verb + " " + rows + " rows to " + argument + " in " + seconds +
+                            "s. Set database.type to " + argument + " and reload to switch.");
+                } else {
+                    reply(sender, "§a" + verb + " " + rows + " rows in " + seconds + "s");
+                }
+            } catch (Exception e) {
+                plugin.getLogManager().severe("Player data " + operation + " failed", e);
+                reply(sender, "§c" + operation + " failed: " + e.getMessage() + ". Run the command again to resume.");
+            } finally {
+                transfer.finish();
+            }
+        });
+    }
+
+    private void reply(CommandSender sender, String message) {
+        plugin.getCoreTasks().runSync(() -> sender.sendMessage(message));
+    }
+
+    private void sendStats(CommandSender sender) {
+        MetricsRegistry metrics = plugin.getMetrics();
+        Map<String, LongSupplier> gauges = metrics.getGauges();
+
+        long requests = metrics.counterTotal("cache_requests", null);
+        long misses = metrics.counterTotal("cache_misses", null);
+        String hitRatio = requests == 0 ? "n/a" : String.format("%.1f%%", 100.0 * (requests - misses) / requests);
+        sender.sendMessage("§6GhastCore Stats:");
+        sender.sendMessage("§eCache: §f" + gauge(gauges, "cache_entries") + " entries, hit ratio " + hitRatio +
+                " (" + requests + " requests)");
+        sender.sendMessage("§ePool: §f" + gauge(gauges, "pool_active_connections") + " active, " +
+                gauge(gauges, "pool_idle_connections") + " idle, " +
+                gauge(gauges, "pool_pending_threads") + " waiting, " +
+                metrics.counterTotal("pool_timeouts", null) + " timeouts");
+        metrics.getTimers().getOrDefault("pool_acquire", Map.of()).forEach((pool, byNamespace) ->
+                byNamespace.values().forEach(histogram -> sender.sendMessage("§e  " + pool + " wait: §f" + summary(histogram))));
+        sender.sendMessage("§ePending writes: §f" + gauge(gauges, "write_behind_pending") + " buffered, " +
+                gauge(gauges, "sqlite_write_queue") + " queued");
+
+        sender.sendMessage("§6Query latency:");
+        Map<String, LatencyHistogram> byOp = new TreeMap<>();
+        Map<String, LatencyHistogram> byNamespaceTotal = new HashMap<>();
+        metrics.getTimers().getOrDefault("db_query", Map.of()).forEach((op, byNamespace) -> byNamespace.forEach((namespace, histogram) -> {
+            byOp.computeIfAbsent(op, k -> new LatencyHistogram()).add(histogram);
+            if (!namespace.isEmpty()) {
+                byNamespaceTotal.computeIfAbsent(namespace, k -> new LatencyHistogram()).add(histogram);
+            }
+        }));
+        byOp.forEach((op, histogram) -> sender.sendMessage("§e  " + op + ": §f" + summary(histogram)));
+
+        List<Map.Entry<String, LatencyHistogram>> namespaces = new ArrayList<>(byNamespaceTotal.entrySet());
+        namespaces.sort(Comparator.comparingLong((Map.Entry<String, LatencyHistogram> e) -> e.getValue().getSumNanos()).reversed());
+        if (!namespaces.isEmpty()) {
+            sender.sendMessage("§6Busiest namespaces:");
+            for (Map.Entry<String, LatencyHistogram> entry : namespaces.subList(0, Math.min(5, namespaces.size()))) {
+                sender.sendMessage("§e  " + entry.getKey() + ": §f" + summary(entry.getValue()));
+            }
+        }
+    }
+
+    private Map<String, Long> cacheFootprint() {
+        return ((PlayerDataManagerImpl) plugin.getPlayerDataManager()).getCache().footprintByNamespace();
+    }
+
+    private static long gauge(Map<String, LongSupplier> gauges, String name) {
+        LongSupplier supplier = gauges.get(name);
+        return supplier != null ? supplier.getAsLong() : 0;
+    }
+
+    private static String summary(LatencyHistogram histogram) {
+        return histogram.getCount() + " calls, p50 " + millis(histogram.quantile(0.5)) +
+                ", p99 " + millis(histogram.quantile(0.99)) + ", max " + millis(histogram.getMaxNanos());
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+
+    private static String kilobytes(long bytes) {
+        return String.format("%.1fKB", bytes / 1024.0);
+    }
+}
@@ -23,7 +23,8 @@ public class CoreTabCompleter implements TabCompleter {
         List<String> completions = new ArrayList<>();
 
         if (args.length == 1) {
-            completions.addAll(Arrays.asList("help", "list", "register", "reload", "unregister", "check", "load", "scan", "load-all"));
+            completions.addAll(Arrays.asList("help", "list", "register", "reload", "unregister", "check", "load", "scan", "load-all", "stats",
+                    "export", "import", "migrate", "transfer-cancel"));
             return filterCompletions(completions, args[0]);
         }
 
@@ -33,7 +34,12 @@ public class CoreTabCompleter implements TabCompleter {
         }
 
         if (args.length == 2 && args[0].equalsIgnoreCase("load")) {
-            completions.addAll(extensionManager.getExtensions().keySet());
+            completions.addAll(extensionManager.getPendingExtensions().keySet());
+            return filterCompletions(completions, args[1]);
+        }
+
+        if (args.length == 2 && args[0].equalsIgnoreCase("migrate")) {
+            completions.addAll(Arrays.asList("sqlite", "mysql"));
             return filterCompletions(completions, args[1]);
         }
 
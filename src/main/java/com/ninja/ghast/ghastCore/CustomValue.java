@@ -0,0 +1,7 @@
+package com.ninja.ghast.ghastCore;
+
+/**
+ * A stored value of a custom type, kept encoded until a codec with {@code codecId} is registered to decode it.
+ */
+public record CustomValue(String codecId, byte[] payload) {
+}
@@ -0,0 +1,4 @@
+package com.ninja.ghast.ghastCore;
+
+public record DataChange(long id, DataKey key, long nodeId) {
+}
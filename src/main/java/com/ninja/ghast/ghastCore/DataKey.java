@@ -0,0 +1,4 @@
+package com.ninja.ghast.ghastCore;
+
+public record DataKey(String playerUUID, String namespace, String key) {
+}
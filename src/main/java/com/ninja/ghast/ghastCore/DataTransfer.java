@@ -0,0 +1,371 @@
+package com.ninja.ghast.ghastCore;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copies player_data to and from compressed files and between databases, one page at a time so
+ * memory use does not grow with the table.
+ * <p>
+ * Files are gzip with one row per line: player UUID, namespace, key and Base64 value ({@code -}
+ * for null), separated by tabs, with backslash, tab and newline escaped in names. Progress is saved
+ * to a checkpoint file next to the target, and a transfer started again with the same target
+ * resumes from it. An export closes its gzip member at every checkpoint, so resuming truncates the
+ * file to the last complete member and appends new ones; gzip readers read concatenated members
+ * as one stream.
+ */
+public class DataTransfer {
+    public interface Progress {
+        /**
+         * Called after every batch with the rows done so far and the fraction of the work done, or -1 if unknown.
+         */
+        void update(long rows, double fraction);
+    }
+
+    private static final String HEADER = "# ghastcore player_data v1";
+
+    private final LogManager logger;
+    private final int batchSize;
+    private final long checkpointRows;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean cancelled;
+
+    public DataTransfer(FileConfiguration config, LogManager logger) {
+        this.logger = logger;
+        this.batchSize = Math.max(1, config.getInt("transfer.batch-size", 1000));
+        this.checkpointRows = Math.max(batchSize, config.getLong("transfer.checkpoint-rows", 50000));
+    }
+
+    /**
+     * Claims the transfer slot; only one transfer runs at a time. Release it with {@link #finish}.
+     */
+    public boolean tryStart() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        cancelled = false;
+        return true;
+    }
+
+    public void finish() {
+        running.set(false);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Stops the running transfer after its current batch, keeping its checkpoint.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Writes every row of {@code source} to {@code file}. Returns the number of rows in the file.
+     */
+    public long export(DatabaseManager source, File file, Progress progress) throws IOException {
+        File checkpointFile = checkpointFile(file);
+        YamlConfiguration checkpoint = loadCheckpoint(checkpointFile);
+        boolean resume = checkpoint != null && file.exists();
+        long rows = 0;
+        StoredRow cursor = null;
+        if (resume) {
+            rows = checkpoint.getLong("rows");
+            cursor = cursorOf(checkpoint);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(checkpoint.getLong("bytes"));
+            }
+            logger.info("Resuming export to {} after {} rows", file.getName(), rows);
+        }
+
+        source.flushPendingWrites();
+        long total = source.countRows();
+        file.getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(file, resume)) {
+            Writer writer = openMember(out);
+            if (!resume) {
+                writer.write(HEADER + "\n");
+            }
+            long sinceCheckpoint = 0;
+            while (true) {
+                List<StoredRow> page = source.readRows(cursor, batchSize);
+                for (StoredRow row : page) {
+                    writeLine(writer, row);
+                }
+                if (!page.isEmpty()) {
+                    cursor = page.get(page.size() - 1);
+                }
+                rows += page.size();
+                sinceCheckpoint += page.size();
+                boolean done = page.size() < batchSize;
+                if (done || cancelled || sinceCheckpoint >= checkpointRows) {
+                    // Only complete gzip members end up before a checkpoint
+                    writer.close();
+                    out.getFD().sync();
+                    if (done) {
+                        break;
+                    }
+                    YamlConfiguration saved = new YamlConfiguration();
+                    saved.set("rows", rows);
+                    saved.set("bytes", out.getChannel().position());
+                    saveCursor(saved, cursor);
+                    saveCheckpoint(checkpointFile, saved);
+                    if (cancelled) {
+                        return rows;
+                    }
+                    writer = openMember(out);
+                    sinceCheckpoint = 0;
+                }
+                progress.update(rows, total > 0 ? Math.min(1, (double) rows / total) : -1);
+            }
+        }
+        Files.deleteIfExists(checkpointFile.toPath());
+        return rows;
+    }
+
+    /**
+     * Upserts every row of an exported file into {@code target}. Returns the number of rows imported.
+     */
+    public long importFile(File file, DatabaseManager target, Progress progress) throws IOException, SQLException {
+        File checkpointFile = checkpointFile(file);
+        YamlConfiguration checkpoint = loadCheckpoint(checkpointFile);
+        long skip = checkpoint != null ? checkpoint.getLong("rows") : 0;
+        if (skip > 0) {
+            logger.info("Resuming import of {} after {} rows", file.getName(), skip);
+        }
+
+        long rows = 0;
+        long length = Math.max(1, file.length());
+        List<StoredRow> batch = new ArrayList<>(batchSize);
+        try (FileInputStream in = new FileInputStream(file);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     new GZIPInputStream(in, 64 * 1024), StandardCharsets.UTF_8), 64 * 1024)) {
+            String line;
+            long lineNumber = 0;
+            long sinceCheckpoint = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (++rows <= skip) {
+                    continue;
+                }
+                batch.add(parseLine(line, lineNumber));
+                if (batch.size() == batchSize) {
+                    target.writeStoredRows(batch);
+                    sinceCheckpoint += batch.size();
+                    batch.clear();
+                    if (cancelled || sinceCheckpoint >= checkpointRows) {
+                        YamlConfiguration saved = new YamlConfiguration();
+                        saved.set("rows", rows);
+                        saveCheckpoint(checkpointFile, saved);
+                        sinceCheckpoint = 0;
+                        if (cancelled) {
+                            return rows;
+                        }
+                    }
+                    progress.update(rows, Math.min(1, (double) in.getChannel().position() / length));
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            target.writeStoredRows(batch);
+        }
+        Files.deleteIfExists(checkpointFile.toPath());
+        return rows;
+    }
+
+    /**
+     * Upserts every row of {@code source} into {@code target}, saving progress to {@code checkpointFile}.
+     * Returns the number of rows copied.
+     */
+    public long copy(DatabaseManager source, DatabaseManager target, File checkpointFile, Progress progress)
+            throws IOException, SQLException {
+        YamlConfiguration checkpoint = loadCheckpoint(checkpointFile);
+        long rows = checkpoint != null ? checkpoint.getLong("rows") : 0;
+        StoredRow cursor = checkpoint != null ? cursorOf(checkpoint) : null;
+        if (checkpoint != null) {
+            logger.info("Resuming copy after {} rows", rows);
+        }
+
+        source.flushPendingWrites();
+        long total = source.countRows();
+        long sinceCheckpoint = 0;
+        while (true) {
+            List<StoredRow> page = source.readRows(cursor, batchSize);
+            if (!page.isEmpty()) {
+                target.writeStoredRows(page);
+                cursor = page.get(page.size() - 1);
+                rows += page.size();
+                sinceCheckpoint += page.size();
+            }
+            if (page.size() < batchSize) {
+                break;
+            }
+            if (cancelled || sinceCheckpoint >= checkpointRows) {
+                YamlConfiguration saved = new YamlConfiguration();
+                saved.set("rows", rows);
+                saveCursor(saved, cursor);
+                saveCheckpoint(checkpointFile, saved);
+                sinceCheckpoint = 0;
+                if (cancelled) {
+                    return rows;
+                }
+            }
+            progress.update(rows, total > 0 ? Math.min(1, (double) rows / total) : -1);
+        }
+        Files.deleteIfExists(checkpointFile.toPath());
+        return rows;
+    }
+
+    /**
+     * Opens a second database with the current settings but another {@code database.type}, as a
+     * copy target. Buffering, the journal, write limits and coherence are left off for it.
+     */
+    public static DatabaseManager openDatabase(GhastCore plugin, String type) throws InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        config.loadFromString(plugin.getConfig().saveToString());
+        config.set("database.type", type);
+        config.set("caching.write-behind.enabled", false);
+        config.set("caching.coherence.enabled", false);
+        config.set("journal.enabled", false);
+        config.set("limits.enabled", false);
+        return new DatabaseManager(config, plugin.getDataFolder(), plugin.getLogManager(), new MetricsRegistry());
+    }
+
+    public static File checkpointFile(File target) {
+        return new File(target.getParentFile(), target.getName() + ".checkpoint");
+    }
+
+    private static Writer openMember(OutputStream out) throws IOException {
+        // Closing the writer finishes the gzip member but leaves the file open
+        OutputStream member = new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(member, 64 * 1024), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    static void writeLine(Writer writer, StoredRow row) throws IOException {
+        writer.write(DatabaseManager.uuidFromBytes(row.playerUuid()));
+        writer.write('\t');
+        writer.write(escape(row.namespace()));
+        writer.write('\t');
+        writer.write(escape(row.key()));
+        writer.write('\t');
+        writer.write(row.value() != null ? Base64.getEncoder().encodeToString(row.value()) : "-");
+        writer.write('\n');
+    }
+
+    static StoredRow parseLine(String line, long lineNumber) throws IOException {
+        String[] fields = line.split("\t", -1);
+        byte[] uuid = fields.length == 4 ? DatabaseManager.uuidToBytes(fields[0]) : null;
+        if (uuid == null) {
+            throw new IOException("Malformed row on line " + lineNumber);
+        }
+        try {
+            byte[] value = fields[3].equals("-") ? null : Base64.getDecoder().decode(fields[3]);
+            return new StoredRow(uuid, unescape(fields[1]), unescape(fields[2]), value);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed value on line " + lineNumber);
+        }
+    }
+
+    private static String escape(String name) {
+        if (name.indexOf('\\') < 0 && name.indexOf('\t') < 0 && name.indexOf('\n') < 0) {
+            return name;
+        }
+        return name.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescape(String name) {
+        if (name.indexOf('\\') < 0) {
+            return name;
+        }
+        StringBuilder result = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '\\' && i + 1 < name.length()) {
+                char next = name.charAt(++i);
+                result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static void saveCursor(YamlConfiguration checkpoint, StoredRow cursor) {
+        checkpoint.set("cursor.player", DatabaseManager.uuidFromBytes(cursor.playerUuid()));
+        checkpoint.set("cursor.namespace-id", cursor.namespaceId());
+        checkpoint.set("cursor.key-id", cursor.keyId());
+    }
+
+    private static StoredRow cursorOf(YamlConfiguration checkpoint) {
+        String player = checkpoint.getString("cursor.player");
+        if (player == null) {
+            return null;
+        }
+        return new StoredRow(DatabaseManager.uuidToBytes(player), checkpoint.getInt("cursor.namespace-id"),
+                checkpoint.getInt("cursor.key-id"), null, null, null);
+    }
+
+    private YamlConfiguration loadCheckpoint(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        YamlConfiguration checkpoint = new YamlConfiguration();
+        try {
+            checkpoint.load(file);
+            return checkpoint;
+        } catch (IOException | InvalidConfigurationException e) {
+            logger.warning("Ignoring unreadable checkpoint {}: {}", file.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static void saveCheckpoint(File file, YamlConfiguration checkpoint) throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.writeString(temp.toPath(), checkpoint.saveToString(), StandardCharsets.UTF_8);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,264 @@
+package com.ninja.ghast.ghastCore;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Binary encoding of player data values. Each value starts with a one-byte type tag;
+ * integers and longs are zigzag varints, so small numbers take two or three bytes.
+ * Custom types are stored as {@link CustomValue}s, tagged with their codec id.
+ */
+public final class DataValues {
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte BYTES = 6;
+    private static final byte CUSTOM = 7;
+
+    private DataValues() {
+    }
+
+    /**
+     * Returns true for the types stored without a codec.
+     */
+    public static boolean isNative(Object value) {
+        return value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Double
+                || value instanceof Boolean || value instanceof byte[] || value instanceof CustomValue;
+    }
+
+    public static void checkStorable(Object value) {
+        if (value != null && !isNative(value)) {
+            throw new IllegalArgumentException("Cannot store a value of type " + value.getClass().getName());
+        }
+    }
+
+    public static byte[] encode(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String string) {
+            return tagged(STRING, string.getBytes(StandardCharsets.UTF_8));
+        }
+        if (value instanceof Integer number) {
+            return varint(INT, zigzag(number));
+        }
+        if (value instanceof Long number) {
+            return varint(LONG, zigzag(number));
+        }
+        if (value instanceof Double number) {
+            return ByteBuffer.allocate(9).put(DOUBLE).putDouble(number).array();
+        }
+        if (value instanceof Boolean bool) {
+            return new byte[]{BOOLEAN, (byte) (bool ? 1 : 0)};
+        }
+        if (value instanceof byte[] bytes) {
+            return tagged(BYTES, bytes);
+        }
+        if (value instanceof CustomValue custom) {
+            byte[] id = custom.codecId().getBytes(StandardCharsets.UTF_8);
+            if (id.length > 255) {
+                throw new IllegalArgumentException("Codec id too long: " + custom.codecId());
+            }
+            return ByteBuffer.allocate(2 + id.length + custom.payload().length)
+                    .put(CUSTOM).put((byte) id.length).put(id).put(custom.payload())
+                    .array();
+        }
+        throw new IllegalArgumentException("Cannot store a value of type " + value.getClass().getName());
+    }
+
+    public static Object decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        return switch (data[0]) {
+            case STRING -> new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+            case INT -> (int) unzigzag(readVarint(data));
+            case LONG -> unzigzag(readVarint(data));
+            case DOUBLE -> ByteBuffer.wrap(data, 1, 8).getDouble();
+            case BOOLEAN -> data[1] != 0;
+            case BYTES -> Arrays.copyOfRange(data, 1, data.length);
+            case CUSTOM -> {
+                int idLength = data[1] & 0xFF;
+                yield new CustomValue(new String(data, 2, idLength, StandardCharsets.UTF_8),
+                        Arrays.copyOfRange(data, 2 + idLength, data.length));
+            }
+            default -> throw new IllegalArgumentException("Unknown value tag " + data[0]);
+        };
+    }
+
+    /**
+     * Returns the size {@link #encode} would produce, counting one byte per string character.
+     */
+    public static int encodedSize(Object value) {
+        if (value instanceof String string) {
+            return 1 + string.length();
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            long zigzag = zigzag(((Number) value).longValue());
+            return 1 + Math.max(1, (64 - Long.numberOfLeadingZeros(zigzag) + 6) / 7);
+        }
+        if (value instanceof Double) {
+            return 9;
+        }
+        if (value instanceof Boolean) {
+            return 2;
+        }
+        if (value instanceof byte[] bytes) {
+            return 1 + bytes.length;
+        }
+        if (value instanceof CustomValue custom) {
+            return 2 + custom.codecId().length() + custom.payload().length;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a rough heap size of a value held in memory, for footprint reporting.
+     */
+    public static long heapSize(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String string) {
+            return 40 + string.length();
+        }
+        if (value instanceof Integer || value instanceof Boolean) {
+            return 16;
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return 24;
+        }
+        if (value instanceof byte[] bytes) {
+            return 16 + bytes.length;
+        }
+        if (value instanceof CustomValue custom) {
+            return 96 + custom.codecId().length() + custom.payload().length;
+        }
+        return 64;
+    }
+
+    /**
+     * Returns the value as text, the form the string-based API has always returned.
+     * Binary values are Base64 encoded; undecodable custom values read as null.
+     */
+    public static String asString(Object value) {
+        if (value == null || value instanceof CustomValue) {
+            return null;
+        }
+        if (value instanceof byte[] bytes) {
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Returns the value as a long. Strings are parsed, so data written by the string API still reads as a number.
+     */
+    public static long asLong(Object value, long defaultValue) {
+        if (value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Double number) {
+            return number.longValue();
+        }
+        if (value instanceof String string) {
+            try {
+                return Long.parseLong(string.trim());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
+    public static int asInt(Object value, int defaultValue) {
+        if (value instanceof Integer number) {
+            return number;
+        }
+        long result = asLong(value, Long.MIN_VALUE);
+        return result >= Integer.MIN_VALUE && result <= Integer.MAX_VALUE ? (int) result : defaultValue;
+    }
+
+    public static double asDouble(Object value, double defaultValue) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String string) {
+            try {
+                return Double.parseDouble(string.trim());
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
+    public static Boolean asBoolean(Object value) {
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        if (value instanceof String string) {
+            return Boolean.parseBoolean(string.trim());
+        }
+        return null;
+    }
+
+    /**
+     * Compares stored values, treating numbers of different types as equal when their values are.
+     */
+    public static boolean sameValue(Object a, Object b) {
+        if (a instanceof byte[] left && b instanceof byte[] right) {
+            return Arrays.equals(left, right);
+        }
+        if ((a instanceof Integer || a instanceof Long) && (b instanceof Integer || b instanceof Long)) {
+            return ((Number) a).longValue() == ((Number) b).longValue();
+        }
+        if (a instanceof Number left && b instanceof Number right) {
+            return Double.compare(left.doubleValue(), right.doubleValue()) == 0;
+        }
+        return Objects.equals(a, b);
+    }
+
+    private static byte[] tagged(byte tag, byte[] payload) {
+        byte[] data = new byte[payload.length + 1];
+        data[0] = tag;
+        System.arraycopy(payload, 0, data, 1, payload.length);
+        return data;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] varint(byte tag, long value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(10);
+        out.write(tag);
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+        return out.toByteArray();
+    }
+
+    private static long readVarint(byte[] data) {
+        long result = 0;
+        for (int i = 1, shift = 0; i < data.length && shift < 64; i++, shift += 7) {
+            result |= (long) (data[i] & 0x7F) << shift;
+            if ((data[i] & 0x80) == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+}
@@ -1,90 +1,297 @@
 package com.ninja.ghast.ghastCore;
 
+import com.ninja.ghast.ghastCore.api.PlayerDataEntry;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPOutputStream;
 
 public class DatabaseManager {
-    private final JavaPlugin plugin;
+    private final FileConfiguration config;
+    private final File dataFolder;
     private final LogManager logger;
+    private final MetricsRegistry metrics;
     private HikariDataSource dataSource;
+    private SqliteWriter sqliteWriter;
+    private WriteBehindBuffer writeBuffer;
+    private boolean writeBehind;
+    private WriteJournal journal;
+    private boolean forceEveryWrite;
+    private final WriteLimiter limiter;
+    private final boolean changeLog;
+    // Tells this server's own changes apart in the change log
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+    private ScheduledExecutorService flushExecutor;
+    // Runs the usage recount, a full table scan that would otherwise hold up flushes
+    private ScheduledExecutorService usageExecutor;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushQueued = new AtomicBoolean(false);
+    // Buffered writes that failed on their own, by how many flushes in a row; guarded by flushLock
+    private final Map<DataKey, Integer> rowFailures = new HashMap<>();
 
-    public DatabaseManager(JavaPlugin plugin) {
-        this.plugin = plugin;
-        this.logger = new LogManager(plugin.getLogger(), plugin.getConfig());
+    private SqlDialect dialect;
+    private NameRegistry names;
+    private String[] upsertSql;
+
+    static final List<String> DATA_COLUMNS = List.of("player_uuid", "namespace_id", "key_id", "value");
+    static final List<String> DATA_KEY_COLUMNS = List.of("player_uuid", "namespace_id", "key_id");
+    // Multi-row statements come in power-of-two sizes up to this many rows, so only a few shapes get prepared
+    private static final int MAX_ROWS_PER_STATEMENT = 256;
+    private static final int MAX_SCAN_PAGE = 5000;
+    private static final int MAX_REPLAY_CHUNK = 5000;
+    private static final int MAX_PRUNE_CHUNK = 5000;
+    // Flushes a buffered write may fail on its own before it is dropped from the buffer
+    private static final int MAX_ROW_FAILURES = 3;
+
+    public DatabaseManager(GhastCore plugin) {
+        this(plugin.getConfig(), plugin.getDataFolder(), plugin.getLogManager(), plugin.getMetrics());
+    }
+
+    public DatabaseManager(FileConfiguration config, File dataFolder, Logger logger) {
+        this(config, dataFolder, logger, new MetricsRegistry());
+    }
+
+    public DatabaseManager(FileConfiguration config, File dataFolder, Logger logger, MetricsRegistry metrics) {
+        this(config, dataFolder, new LogManager(logger, config), metrics);
+    }
+
+    public DatabaseManager(FileConfiguration config, File dataFolder, LogManager logger, MetricsRegistry metrics) {
+        this.config = config;
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.limiter = new WriteLimiter(config, metrics);
+        this.changeLog = config.getBoolean("caching.coherence.enabled", false);
         initializeDatabase();
+        initializeWriteBehind();
+        registerGauges();
     }
 
     private void initializeDatabase() {
-        FileConfiguration config = plugin.getConfig();
         String dbType = config.getString("database.type", "sqlite").toLowerCase();
 
         try {
-            HikariConfig hikariConfig = new HikariConfig();
-            hikariConfig.setMaximumPoolSize(config.getInt("database.pool.max-size", 10));
-            hikariConfig.setMaxLifetime(config.getLong("database.pool.idle-timeout", 30000));
-            hikariConfig.setMinimumIdle(2);
-            hikariConfig.setConnectionTestQuery("SELECT 1");
-            hikariConfig.setValidationTimeout(5000); // 5 seconds
-            hikariConfig.setLeakDetectionThreshold(30000); // Detect leaks after 30s
-
-            if (dbType.equals("mysql")) {
-                String host = config.getString("database.mysql.host");
-                String port = config.getString("database.mysql.port");
-                String database = config.getString("database.mysql.database");
-                String username = config.getString("database.mysql.username");
-                String password = config.getString("database.mysql.password");
-
-                if (host == null) throw new IllegalArgumentException("MySQL host not configured");
-                if (port == null) throw new IllegalArgumentException("MySQL port not configured");
-                if (database == null) throw new IllegalArgumentException("MySQL database not configured");
-                if (username == null) throw new IllegalArgumentException("MySQL username not configured");
-                if (password == null) throw new IllegalArgumentException("MySQL password not configured");
-
-                hikariConfig.setJdbcUrl("jdbc:mysql://" + host + ":" + port + "/" + database +
-                        "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC");
-                hikariConfig.setUsername(username);
-                hikariConfig.setPassword(password);
+            dialect = SqlDialect.forType(dbType);
+            HikariConfig hikariConfig = createPoolConfig(config);
+
+            if (dialect instanceof SqliteDialect sqlite && sqlite.isSingleWriter(config)) {
+                // The writer opens the file first so WAL mode is in place before any reader connects
+                HikariConfig writerConfig = createPoolConfig(config);
+                writerConfig.setMetricsTrackerFactory(HikariMetricsTracker.factory(metrics));
+                sqlite.configureWriter(writerConfig, config, dataFolder);
+                sqliteWriter = new SqliteWriter(new HikariDataSource(writerConfig), logger,
+                        config.getInt("database.sqlite.group-commit-size", 256));
+                sqlite.configureReader(hikariConfig, config, dataFolder);
             } else {
-                hikariConfig.setJdbcUrl("jdbc:sqlite:" + plugin.getDataFolder() + "/data.db");
+                dialect.configure(hikariConfig, config, dataFolder);
             }
 
+            if (hikariConfig.getPoolName() == null) {
+                hikariConfig.setPoolName("GhastCore-Pool");
+            }
+            hikariConfig.setMetricsTrackerFactory(HikariMetricsTracker.factory(metrics));
             dataSource = new HikariDataSource(hikariConfig);
-
-            boolean tableExists = false;
-            try (Connection conn = getConnection();
-                 ResultSet rs = conn.getMetaData().getTables(null, null, "player_data", null)) {
-                if (rs.next()) {
-                    tableExists = true;
-                }
+            try (Connection conn = getConnection()) {
+                dialect.inspect(conn.getMetaData());
             }
 
-            if (!tableExists) {
-                try (Connection conn = getConnection();
-                     PreparedStatement stmt = conn.prepareStatement(
-                             "CREATE TABLE player_data (" +
-                                     "player_uuid VARCHAR(36) NOT NULL," +
-                                     "namespace VARCHAR(100) NOT NULL," +
-                                     "key_name VARCHAR(100) NOT NULL," +
-                                     "value TEXT," +
-                                     "PRIMARY KEY (player_uuid, namespace, key_name)" +
-                                     ")")) {
-                    stmt.execute();
-                }
+            upsertSql = new String[Integer.numberOfTrailingZeros(MAX_ROWS_PER_STATEMENT) + 1];
+            for (int i = 0; i < upsertSql.length; i++) {
+                upsertSql[i] = dialect.upsert("player_data", DATA_COLUMNS, DATA_KEY_COLUMNS, List.of("value"), 1 << i);
             }
+            names = new NameRegistry(dialect);
+            new SchemaMigrator(this, names, logger, dialect).migrate();
         } catch (SQLException e) {
             logger.severe("Failed to initialize database: " + e.getMessage());
             throw new IllegalStateException("Database initialization failed", e);
         }
     }
 
+    private HikariConfig createPoolConfig(FileConfiguration config) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setMaximumPoolSize(config.getInt("database.pool.max-size", 10));
+        hikariConfig.setMaxLifetime(config.getLong("database.pool.idle-timeout", 30000));
+        hikariConfig.setMinimumIdle(2);
+        hikariConfig.setConnectionTestQuery("SELECT 1");
+        hikariConfig.setValidationTimeout(5000); // 5 seconds
+        hikariConfig.setLeakDetectionThreshold(30000); // Detect leaks after 30s
+        return hikariConfig;
+    }
+
+    private void initializeWriteBehind() {
+        boolean configuredWriteBehind = config.getBoolean("caching.write-behind.enabled", false);
+        if (config.getBoolean("journal.enabled", false)) {
+            openJournal();
+        }
+        writeBehind = configuredWriteBehind || journal != null;
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GhastCore-WriteBehind");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Without write-behind the buffer only holds deferred writes: counter updates and writes merged over a rate limit.
+        // The journal buffers every write, but they are flushed as often as deferred writes unless write-behind is on.
+        int maxBuffered = config.getInt("caching.write-behind.max-buffered-writes", 5000);
+        long flushMillis = configuredWriteBehind
+                ? TimeUnit.SECONDS.toMillis(Math.max(1, config.getLong("caching.flushIntervalSeconds", 300)))
+                : Math.max(50, config.getLong("caching.deferred-flush-ms", 1000));
+        writeBuffer = new WriteBehindBuffer(maxBuffered);
+        flushExecutor.scheduleAtFixedRate(this::flushPendingWrites, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        if (configuredWriteBehind) {
+            logger.info("Write-behind enabled (flush every {}ms or at {} buffered writes)", flushMillis, maxBuffered);
+        }
+        if (journal != null) {
+            long fsyncMillis = config.getLong("journal.fsync-interval-ms", 1000);
+            forceEveryWrite = fsyncMillis <= 0;
+            if (!forceEveryWrite) {
+                flushExecutor.scheduleWithFixedDelay(journal::force, fsyncMillis, fsyncMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (limiter.hasQuotas()) {
+            long refreshInterval = Math.max(10, config.getLong("limits.usage-refresh-seconds", 300));
+            usageExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "GhastCore-Usage");
+                thread.setDaemon(true);
+                return thread;
+            });
+            usageExecutor.scheduleWithFixedDelay(this::refreshNamespaceUsage, 0, refreshInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Opens the journal and writes whatever it still holds from the last run to the database
+     * before anything else is written.
+     */
+    private void openJournal() {
+        dataFolder.mkdirs();
+        int size = (int) Math.min(Integer.MAX_VALUE, Math.max(1, config.getLong("journal.size-mb", 64)) * 1024 * 1024);
+        try {
+            journal = new WriteJournal(new File(dataFolder, "journal.dat"), size);
+        } catch (IOException e) {
+            logger.severe("Failed to open the write journal: " + e.getMessage());
+            throw new IllegalStateException("Database initialization failed", e);
+        }
+
+        Map<DataKey, Optional<Object>> recovered = journal.recover();
+        if (!recovered.isEmpty()) {
+            logger.info("Replaying {} journaled writes from the last run", recovered.size());
+            Map<DataKey, Optional<Object>> chunk = new HashMap<>();
+            try {
+                for (Map.Entry<DataKey, Optional<Object>> entry : recovered.entrySet()) {
+                    chunk.put(entry.getKey(), entry.getValue());
+                    if (chunk.size() == MAX_REPLAY_CHUNK) {
+                        writeRows(chunk);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    writeRows(chunk);
+                }
+            } catch (SQLException e) {
+                // The journal is left as it is, so the next start tries again
+                logger.severe("Failed to replay the write journal: " + e.getMessage());
+                throw new IllegalStateException("Database initialization failed", e);
+            }
+        }
+        journal.truncate(journal.mark());
+        journal.force();
+        if (journal.capacity() != size) {
+            logger.info("The new journal size applies after the next clean shutdown");
+        }
+    }
+
+    /**
+     * Recounts the rows and value bytes stored per namespace for the storage quotas. Scans the whole table.
+     */
+    public void refreshNamespaceUsage() {
+        String sql = "SELECT namespace_id, COUNT(*), SUM(LENGTH(value)) FROM player_data GROUP BY namespace_id";
+        Map<String, long[]> usage = new HashMap<>();
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                usage.put(names.nameOf(conn, rs.getInt(1)), new long[]{rs.getLong(2), rs.getLong(3)});
+            }
+        } catch (SQLException e) {
+            metrics.counter("db_errors", "usage", "").increment();
+            logger.warning("Failed to count namespace storage: " + e.getMessage());
+            return;
+        } finally {
+            metrics.recordTime("db_query", "usage", "", start);
+        }
+        limiter.refreshUsage(usage);
+    }
+
+    private void registerGauges() {
+        metrics.gauge("pool_active_connections", () -> poolStat(0));
+        metrics.gauge("pool_idle_connections", () -> poolStat(1));
+        metrics.gauge("pool_pending_threads", () -> poolStat(2));
+        metrics.gauge("pool_total_connections", () -> poolStat(3));
+        metrics.gauge("write_behind_pending", () -> writeBuffer != null ? writeBuffer.size() : 0);
+        metrics.gauge("journal_used_bytes", () -> journal != null ? journal.usedBytes() : 0);
+        metrics.gauge("sqlite_write_queue", () -> sqliteWriter != null ? sqliteWriter.getQueueSize() : 0);
+    }
+
+    private long poolStat(int stat) {
+        if (dataSource == null || dataSource.isClosed() || dataSource.getHikariPoolMXBean() == null) {
+            return 0;
+        }
+        var pool = dataSource.getHikariPoolMXBean();
+        return switch (stat) {
+            case 0 -> pool.getActiveConnections();
+            case 1 -> pool.getIdleConnections();
+            case 2 -> pool.getThreadsAwaitingConnection();
+            default -> pool.getTotalConnections();
+        };
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
     public Connection getConnection() throws SQLException {
         if (dataSource == null) {
             throw new IllegalStateException("Database connection pool not initialized");
@@ -92,40 +299,859 @@ public class DatabaseManager {
         return dataSource.getConnection();
     }
 
-    public void storePlayerData(String playerUUID, String namespace, String key, String value) {
-        String sql = "INSERT OR REPLACE INTO player_data (player_uuid, namespace, key_name, value) VALUES (?, ?, ?, ?)";
+    /**
+     * Returns a connection that may write. In SQLite single-writer mode this is the writer's
+     * connection, so hold it only for setup work; normal writes go through {@link #executeWrite}.
+     */
+    public Connection getWriteConnection() throws SQLException {
+        return sqliteWriter != null ? sqliteWriter.getConnection() : getConnection();
+    }
+
+    /**
+     * Runs {@code work} in a transaction, after running {@code prepare} in auto-commit mode.
+     * In SQLite single-writer mode both run on the writer thread and the call waits for the group commit.
+     */
+    public void executeWrite(SqliteWriter.SqlWork prepare, SqliteWriter.SqlWork work) throws SQLException {
+        if (sqliteWriter != null) {
+            try {
+                sqliteWriter.submit(prepare, work).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof SQLException sqlException) {
+                    throw sqlException;
+                }
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new SQLException(e.getCause());
+            }
+            return;
+        }
+
+        try (Connection conn = getConnection()) {
+            prepare.run(conn);
+            conn.setAutoCommit(false);
+            try {
+                work.run(conn);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Stores one value. Returns false if the namespace's write limit dropped it.
+     */
+    public boolean storePlayerData(String playerUUID, String namespace, String key, Object value) {
+        requireUuid(playerUUID);
+        DataValues.checkStorable(value);
+        WriteLimiter.Outcome outcome = limiter.admit(namespace, 1, DataValues.encodedSize(value));
+        if (outcome == WriteLimiter.Outcome.DROP) {
+            return false;
+        }
+        ExtensionStats.recordWrite(value);
+        DataKey dataKey = new DataKey(playerUUID, namespace, key);
+        // A key with a deferred write still buffered is buffered again, so the flush cannot overwrite this value
+        if (writeBehind || outcome == WriteLimiter.Outcome.MERGE || writeBuffer.get(dataKey) != null) {
+            if (buffer(dataKey, value)) {
+                requestFlush();
+            }
+            return true;
+        }
+
+        try {
+            writeRows(Map.of(dataKey, Optional.ofNullable(value)));
+        } catch (SQLException e) {
+            logger.severe("Error storing player data: " + e.getMessage());
+            throw new IllegalStateException("Database operation failed", e);
+        }
+        return true;
+    }
+
+    /**
+     * Buffers a value for the next flush, bypassing the write limits. Repeated updates of one key
+     * between flushes become a single row write.
+     */
+    public void storePlayerDataDeferred(String playerUUID, String namespace, String key, Object value) {
+        requireUuid(playerUUID);
+        DataValues.checkStorable(value);
+        ExtensionStats.recordWrite(value);
+        if (buffer(new DataKey(playerUUID, namespace, key), value)) {
+            requestFlush();
+        }
+    }
+
+    public Object getPlayerData(String playerUUID, String namespace, String key) {
+        if (writeBuffer != null) {
+            Optional<Object> buffered = writeBuffer.get(new DataKey(playerUUID, namespace, key));
+            if (buffered != null) {
+                return buffered.orElse(null);
+            }
+        }
+
+        byte[] uuid = requireUuid(playerUUID);
+        String sql = "SELECT value FROM player_data WHERE player_uuid = ? AND namespace_id = ? AND key_id = ?";
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            int namespaceId = names.findId(conn, namespace);
+            int keyId = names.findId(conn, key);
+            if (namespaceId == NameRegistry.UNKNOWN || keyId == NameRegistry.UNKNOWN) {
+                return null;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setBytes(1, uuid);
+                stmt.setInt(2, namespaceId);
+                stmt.setInt(3, keyId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return DataValues.decode(rs.getBytes("value"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            metrics.counter("db_errors", "get", namespace).increment();
+            logger.severe("Error retrieving player data: " + e.getMessage());
+            throw new IllegalStateException("Database operation failed", e);
+        } finally {
+            metrics.recordTime("db_query", "get", namespace, start);
+            ExtensionStats.recordQuery(System.nanoTime() - start);
+        }
+        return null;
+    }
+
+    /**
+     * Stores several values of one namespace. Returns false if the namespace's write limit dropped them.
+     */
+    public boolean storePlayerDataBatch(String playerUUID, String namespace, Map<String, ?> values) {
+        if (values.isEmpty()) {
+            return true;
+        }
+        requireUuid(playerUUID);
+        values.values().forEach(DataValues::checkStorable);
+        long bytes = values.values().stream().mapToLong(DataValues::encodedSize).sum();
+        WriteLimiter.Outcome outcome = limiter.admit(namespace, values.size(), bytes);
+        if (outcome == WriteLimiter.Outcome.DROP) {
+            return false;
+        }
+        values.values().forEach(ExtensionStats::recordWrite);
+        if (writeBehind || outcome == WriteLimiter.Outcome.MERGE || values.keySet().stream()
+                .anyMatch(key -> writeBuffer.get(new DataKey(playerUUID, namespace, key)) != null)) {
+            boolean full = false;
+            for (Map.Entry<String, ?> entry : values.entrySet()) {
+                full |= buffer(new DataKey(playerUUID, namespace, entry.getKey()), entry.getValue());
+            }
+            if (full) {
+                requestFlush();
+            }
+            return true;
+        }
+
+        Map<DataKey, Optional<Object>> rows = new HashMap<>();
+        values.forEach((key, value) -> rows.put(new DataKey(playerUUID, namespace, key), Optional.ofNullable(value)));
+        try {
+            writeRows(rows);
+        } catch (SQLException e) {
+            logger.severe("Error storing player data batch: " + e.getMessage());
+            throw new IllegalStateException("Database operation failed", e);
+        }
+        return true;
+    }
+
+    /**
+     * Loads several keys of one namespace in a single query. Keys without a stored value are left out of the result.
+     */
+    public Map<String, Object> getPlayerDataBatch(String playerUUID, String namespace, Collection<String> keys) {
+        Map<String, Object> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            Optional<Object> buffered = writeBuffer != null ? writeBuffer.get(new DataKey(playerUUID, namespace, key)) : null;
+            if (buffered == null) {
+                missing.add(key);
+            } else if (buffered.isPresent()) {
+                result.put(key, buffered.get());
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        byte[] uuid = requireUuid(playerUUID);
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            int namespaceId = names.findId(conn, namespace);
+            if (namespaceId == NameRegistry.UNKNOWN) {
+                return result;
+            }
+            Map<Integer, String> keysById = new HashMap<>();
+            for (String key : missing) {
+                int keyId = names.findId(conn, key);
+                if (keyId != NameRegistry.UNKNOWN) {
+                    keysById.put(keyId, key);
+                }
+            }
+            if (keysById.isEmpty()) {
+                return result;
+            }
+
+            String placeholders = String.join(", ", Collections.nCopies(keysById.size(), "?"));
+            String sql = "SELECT key_id, value FROM player_data WHERE player_uuid = ? AND namespace_id = ? AND key_id IN (" + placeholders + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setBytes(1, uuid);
+                stmt.setInt(2, namespaceId);
+                int index = 3;
+                for (int keyId : keysById.keySet()) {
+                    stmt.setInt(index++, keyId);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Object value = DataValues.decode(rs.getBytes("value"));
+                        if (value != null) {
+                            result.put(keysById.get(rs.getInt("key_id")), value);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            metrics.counter("db_errors", "get_batch", namespace).increment();
+            logger.severe("Error retrieving player data batch: " + e.getMessage());
+            throw new IllegalStateException("Database operation failed", e);
+        } finally {
+            metrics.recordTime("db_query", "get_batch", namespace, start);
+            ExtensionStats.recordQuery(System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    /**
+     * Loads every row of a player in one query, grouped by namespace. An empty namespace list loads all namespaces.
+     */
+    public Map<String, Map<String, Object>> getAllPlayerData(String playerUUID, Collection<String> namespaces) {
+        Map<String, Map<String, Object>> result = new HashMap<>();
+        byte[] uuid = requireUuid(playerUUID);
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            List<Integer> namespaceIds = new ArrayList<>();
+            for (String namespace : namespaces) {
+                int namespaceId = names.findId(conn, namespace);
+                if (namespaceId != NameRegistry.UNKNOWN) {
+                    namespaceIds.add(namespaceId);
+                }
+            }
+
+            if (namespaces.isEmpty() || !namespaceIds.isEmpty()) {
+                StringBuilder sql = new StringBuilder("SELECT namespace_id, key_id, value FROM player_data WHERE player_uuid = ?");
+                if (!namespaceIds.isEmpty()) {
+                    sql.append(" AND namespace_id IN (").append(String.join(", ", Collections.nCopies(namespaceIds.size(), "?"))).append(")");
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                    stmt.setBytes(1, uuid);
+                    int index = 2;
+                    for (int namespaceId : namespaceIds) {
+                        stmt.setInt(index++, namespaceId);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Object value = DataValues.decode(rs.getBytes("value"));
+                            if (value != null) {
+                                result.computeIfAbsent(names.nameOf(conn, rs.getInt("namespace_id")), k -> new HashMap<>())
+                                        .put(names.nameOf(conn, rs.getInt("key_id")), value);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            metrics.counter("db_errors", "get_all", "").increment();
+            logger.severe("Error retrieving player data: " + e.getMessage());
+            throw new IllegalStateException("Database operation failed", e);
+        } finally {
+            metrics.recordTime("db_query", "get_all", "", start);
+            ExtensionStats.recordQuery(System.nanoTime() - start);
+        }
+
+        if (writeBuffer != null) {
+            writeBuffer.forPlayer(playerUUID, namespaces).forEach((dataKey, value) -> {
+                Map<String, Object> namespaceData = result.computeIfAbsent(dataKey.namespace(), k -> new HashMap<>());
+                if (value.isPresent()) {
+                    namespaceData.put(dataKey.key(), value.get());
+                } else {
+                    namespaceData.remove(dataKey.key());
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Streams every player's value of one key, paging through the (namespace_id, key_id, player_uuid)
+     * index in player UUID order. Each page borrows a connection only while it is read, so at most one
+     * page is held in memory and the stream needs no closing. Writes still buffered by write-behind
+     * are not included.
+     */
+    public Stream<PlayerDataEntry> scanKey(String namespace, String key, int pageSize) {
+        int limit = Math.max(1, Math.min(pageSize, MAX_SCAN_PAGE));
+        String select = "SELECT player_uuid, value FROM player_data WHERE namespace_id = ? AND key_id = ?";
+        String firstPage = select + " ORDER BY player_uuid LIMIT " + limit;
+        String nextPage = select + " AND player_uuid > ? ORDER BY player_uuid LIMIT " + limit;
+
+        Spliterator<PlayerDataEntry> pages = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL) {
+            private final ArrayDeque<PlayerDataEntry> page = new ArrayDeque<>(limit);
+            private byte[] cursor;
+            private boolean exhausted;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super PlayerDataEntry> action) {
+                while (page.isEmpty() && !exhausted) {
+                    exhausted = readPage() < limit;
+                }
+                PlayerDataEntry entry = page.poll();
+                if (entry == null) {
+                    return false;
+                }
+                action.accept(entry);
+                return true;
+            }
+
+            private int readPage() {
+                long start = System.nanoTime();
+                int rows = 0;
+                try (Connection conn = getConnection()) {
+                    int namespaceId = names.findId(conn, namespace);
+                    int keyId = names.findId(conn, key);
+                    if (namespaceId == NameRegistry.UNKNOWN || keyId == NameRegistry.UNKNOWN) {
+                        return 0;
+                    }
+                    try (PreparedStatement stmt = conn.prepareStatement(cursor == null ? firstPage : nextPage)) {
+                        stmt.setInt(1, namespaceId);
+                        stmt.setInt(2, keyId);
+                        if (cursor != null) {
+                            stmt.setBytes(3, cursor);
+                        }
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                rows++;
+                                cursor = rs.getBytes("player_uuid");
+                                Object value = DataValues.decode(rs.getBytes("value"));
+                                if (value != null) {
+                                    page.add(new PlayerDataEntry(uuidOf(cursor), namespace, key, value));
+                                }
+                            }
+                        }
+                    }
+                } catch (SQLException e) {
+                    metrics.counter("db_errors", "scan", namespace).increment();
+                    logger.severe("Error scanning player data: " + e.getMessage());
+                    throw new IllegalStateException("Database operation failed", e);
+                } finally {
+                    metrics.recordTime("db_query", "scan", namespace, start);
+                }
+                return rows;
+            }
+        };
+        return StreamSupport.stream(pages, false);
+    }
+
+    /**
+     * Upserts rows in one transaction. Name ids are resolved first, outside the transaction.
+     */
+    private void writeRows(Map<DataKey, Optional<Object>> rows) throws SQLException {
+        List<Object[]> resolved = new ArrayList<>(rows.size());
+        long start = System.nanoTime();
+        try {
+            executeWrite(conn -> {
+                for (Map.Entry<DataKey, Optional<Object>> entry : rows.entrySet()) {
+                    DataKey dataKey = entry.getKey();
+                    resolved.add(new Object[]{
+                            requireUuid(dataKey.playerUUID()),
+                            names.idOf(conn, dataKey.namespace()),
+                            names.idOf(conn, dataKey.key()),
+                            DataValues.encode(entry.getValue().orElse(null))
+                    });
+                }
+            }, conn -> {
+                upsertRows(conn, resolved);
+                if (changeLog) {
+                    logChanges(conn, resolved);
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            metrics.counter("db_errors", "write", "").increment();
+            throw e;
+        } finally {
+            metrics.recordTime("db_query", "write", "", start);
+            ExtensionStats.recordQuery(System.nanoTime() - start);
+        }
+        for (DataKey dataKey : rows.keySet()) {
+            metrics.counter("db_rows_written", "", dataKey.namespace()).increment();
+        }
+    }
+
+    /**
+     * Upserts rows whose values are already encoded, e.g. copied from another database, in one transaction.
+     */
+    public void writeStoredRows(List<StoredRow> rows) throws SQLException {
+        List<Object[]> resolved = new ArrayList<>(rows.size());
+        long start = System.nanoTime();
+        try {
+            executeWrite(conn -> {
+                for (StoredRow row : rows) {
+                    resolved.add(new Object[]{
+                            row.playerUuid(),
+                            names.idOf(conn, row.namespace()),
+                            names.idOf(conn, row.key()),
+                            row.value()
+                    });
+                }
+            }, conn -> {
+                upsertRows(conn, resolved);
+                if (changeLog) {
+                    logChanges(conn, resolved);
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            metrics.counter("db_errors", "import", "").increment();
+            throw e;
+        } finally {
+            metrics.recordTime("db_query", "import", "", start);
+        }
+    }
+
+    /**
+     * Reads up to {@code limit} rows in primary key order, starting after {@code after} or at the
+     * first row if that is null. Pages through the primary key, so copying the whole table one
+     * page at a time keeps memory flat.
+     */
+    public List<StoredRow> readRows(StoredRow after, int limit) {
+        String sql = "SELECT player_uuid, namespace_id, key_id, value FROM player_data"
+                + (after != null ? " WHERE (player_uuid, namespace_id, key_id) > (?, ?, ?)" : "")
+                + " ORDER BY player_uuid, namespace_id, key_id LIMIT " + Math.max(1, limit);
+        List<StoredRow> rows = new ArrayList<>(Math.max(1, limit));
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, playerUUID);
-            stmt.setString(2, namespace);
-            stmt.setString(3, key);
-            stmt.setString(4, value);
-            stmt.executeUpdate();
+            if (after != null) {
+                stmt.setBytes(1, after.playerUuid());
+                stmt.setInt(2, after.namespaceId());
+                stmt.setInt(3, after.keyId());
+            }
+            stmt.setFetchSize(Math.max(1, limit));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int namespaceId = rs.getInt("namespace_id");
+                    int keyId = rs.getInt("key_id");
+                    rows.add(new StoredRow(rs.getBytes("player_uuid"), namespaceId, keyId,
+                            names.nameOf(conn, namespaceId), names.nameOf(conn, keyId), rs.getBytes("value")));
+                }
+            }
         } catch (SQLException e) {
-            logger.severe("Error storing player data: " + e.getMessage());
+            metrics.counter("db_errors", "export", "").increment();
+            logger.severe("Error reading player data for export: " + e.getMessage());
             throw new IllegalStateException("Database operation failed", e);
+        } finally {
+            metrics.recordTime("db_query", "export", "", start);
         }
+        return rows;
     }
 
-    public String getPlayerData(String playerUUID, String namespace, String key) {
-        String sql = "SELECT value FROM player_data WHERE player_uuid = ? AND namespace = ? AND key_name = ?";
+    public long countRows() {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM player_data");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.severe("Error counting player data: " + e.getMessage());
+            throw new IllegalStateException("Database operation failed", e);
+        }
+    }
+
+    private void upsertRows(Connection conn, List<Object[]> resolved) throws SQLException {
+        int offset = 0;
+        for (int shape = upsertSql.length - 1; shape >= 0 && offset < resolved.size(); shape--) {
+            int rowsPerStatement = 1 << shape;
+            if (resolved.size() - offset < rowsPerStatement) {
+                continue;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(upsertSql[shape])) {
+                while (resolved.size() - offset >= rowsPerStatement) {
+                    int index = 1;
+                    for (int i = offset; i < offset + rowsPerStatement; i++) {
+                        Object[] row = resolved.get(i);
+                        stmt.setBytes(index++, (byte[]) row[0]);
+                        stmt.setInt(index++, (Integer) row[1]);
+                        stmt.setInt(index++, (Integer) row[2]);
+                        stmt.setBytes(index++, (byte[]) row[3]);
+                    }
+                    stmt.addBatch();
+                    offset += rowsPerStatement;
+                }
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    private void logChanges(Connection conn, List<Object[]> resolved) throws SQLException {
+        String sql = "INSERT INTO data_changes (player_uuid, namespace_id, key_id, node_id, changed_at) VALUES (?, ?, ?, ?, ?)";
+        long now = System.currentTimeMillis();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Object[] row : resolved) {
+                stmt.setBytes(1, (byte[]) row[0]);
+                stmt.setInt(2, (Integer) row[1]);
+                stmt.setInt(3, (Integer) row[2]);
+                stmt.setLong(4, nodeId);
+                stmt.setLong(5, now);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} logged changes with an id above {@code afterId}, oldest first.
+     */
+    public List<DataChange> readChanges(long afterId, int limit) {
+        String sql = "SELECT id, player_uuid, namespace_id, key_id, node_id FROM data_changes WHERE id > ? ORDER BY id LIMIT " + limit;
+        List<DataChange> changes = new ArrayList<>();
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, playerUUID);
-            stmt.setString(2, namespace);
-            stmt.setString(3, key);
-            var rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("value");
+            stmt.setLong(1, afterId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    DataKey key = new DataKey(uuidFromBytes(rs.getBytes("player_uuid")),
+                            names.nameOf(conn, rs.getInt("namespace_id")), names.nameOf(conn, rs.getInt("key_id")));
+                    changes.add(new DataChange(rs.getLong("id"), key, rs.getLong("node_id")));
+                }
             }
         } catch (SQLException e) {
-            logger.severe("Error retrieving player data: " + e.getMessage());
+            metrics.counter("db_errors", "changes", "").increment();
             throw new IllegalStateException("Database operation failed", e);
+        } finally {
+            metrics.recordTime("db_query", "changes", "", start);
+        }
+        return changes;
+    }
+
+    public long latestChangeId() {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT MAX(id) FROM data_changes");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Database operation failed", e);
+        }
+    }
+
+    /**
+     * Deletes logged changes older than {@code maxAgeMillis}. The age cutoff is turned into an id
+     * through the changed_at index, and rows are deleted by id range in small transactions, so the
+     * delete never scans the table or locks the end of it where other servers insert.
+     */
+    public void pruneChanges(long maxAgeMillis) {
+        long start = System.nanoTime();
+        try {
+            long cutoffId = changeIdAt(System.currentTimeMillis() - maxAgeMillis);
+            long deletedBelow = Long.MIN_VALUE;
+            long oldest;
+            // Stops if a delete did not take, rather than looping on the same range
+            while ((oldest = oldestChangeId()) >= deletedBelow && oldest >= 0 && oldest < cutoffId) {
+                long upTo = Math.min(cutoffId, oldest + MAX_PRUNE_CHUNK);
+                deletedBelow = upTo;
+                executeWrite(conn -> { }, conn -> {
+                    try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM data_changes WHERE id < ?")) {
+                        stmt.setLong(1, upTo);
+                        stmt.executeUpdate();
+                    }
+                });
+            }
+        } catch (SQLException | RuntimeException e) {
+            metrics.counter("db_errors", "prune", "").increment();
+            logger.warning("Failed to prune the change log: " + e.getMessage());
+        } finally {
+            metrics.recordTime("db_query", "prune", "", start);
+        }
+    }
+
+    // The id of the first change logged at or after the given time, or one past the newest change
+    private long changeIdAt(long timeMillis) throws SQLException {
+        try (Connection conn = getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id FROM data_changes WHERE changed_at >= ? ORDER BY changed_at LIMIT 1")) {
+                stmt.setLong(1, timeMillis);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getLong(1);
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT MAX(id) FROM data_changes");
+                 ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) + 1 : 0;
+            }
+        }
+    }
+
+    private long oldestChangeId() throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT MIN(id) FROM data_changes");
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                long id = rs.getLong(1);
+                return rs.wasNull() ? -1 : id;
+            }
+            return -1;
+        }
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Buffers a write, recording it in the journal first. The caller, often the main thread, never
+     * flushes: while the journal is full, writes are buffered without journaling until a flush
+     * requested here frees it. Returns true once the buffer should be flushed.
+     */
+    private boolean buffer(DataKey dataKey, Object value) {
+        if (journal == null) {
+            return writeBuffer.put(dataKey, value);
+        }
+        byte[] uuid = requireUuid(dataKey.playerUUID());
+        byte[] encoded = DataValues.encode(value);
+        // Journal order and buffer order must agree for the same key
+        synchronized (journal) {
+            if (journal.append(dataKey, uuid, encoded)) {
+                boolean full = writeBuffer.put(dataKey, value);
+                if (forceEveryWrite) {
+                    journal.force();
+                }
+                return full;
+            }
+            writeBuffer.put(dataKey, value);
+        }
+        metrics.counter("journal_overflow", "", dataKey.namespace()).increment();
+        return true;
+    }
+
+    private void requestFlush() {
+        if (flushExecutor != null && flushQueued.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushQueued.set(false);
+                flushPendingWrites();
+            });
+        }
+    }
+
+    /**
+     * Writes all buffered player data in a single transaction. Entries stay buffered
+     * (and visible to reads) until the commit succeeds, so a failed flush is retried later.
+     * If the transaction fails for a reason other than the connection, the batch is retried
+     * in halves down to single rows, so one bad row cannot hold back the others.
+     */
+    public void flushPendingWrites() {
+        if (writeBuffer == null || (writeBuffer.isEmpty() && (journal == null || journal.usedBytes() == 0))) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            // Every journal record before the mark is in this snapshot or was confirmed by an earlier flush
+            WriteJournal.Mark mark = journal != null ? journal.mark() : null;
+            Map<DataKey, Optional<Object>> batch = writeBuffer.snapshot();
+            if (!batch.isEmpty()) {
+                writeOrSplit(batch);
+            }
+            if (mark != null) {
+                // Rows that failed on their own stay buffered, so their records must outlive the truncation
+                Map<DataKey, Optional<Object>> retained = new HashMap<>();
+                rowFailures.keySet().forEach(key -> {
+                    Optional<Object> value = batch.get(key);
+                    if (value != null) {
+                        retained.put(key, value);
+                    }
+                });
+                if (retained.isEmpty() || rejournal(retained)) {
+                    journal.truncate(mark);
+                } else {
+                    logger.warning("Write journal full, keeping its records until {} failed writes go through", retained.size());
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Also keeps the scheduled flush alive, which an uncaught exception would cancel
+            logger.severe("Error flushing buffered player data: " + e.getMessage());
+        } finally {
+            flushLock.unlock();
         }
-        return null;
+    }
+
+    /**
+     * Appends rows that are still buffered with these values to the journal again, after any mark
+     * taken before. Rows written again since were journaled then. Returns false if the journal is full.
+     */
+    private boolean rejournal(Map<DataKey, Optional<Object>> rows) {
+        synchronized (journal) {
+            for (Map.Entry<DataKey, Optional<Object>> entry : rows.entrySet()) {
+                DataKey dataKey = entry.getKey();
+                if (!entry.getValue().equals(writeBuffer.get(dataKey))) {
+                    continue;
+                }
+                if (!journal.append(dataKey, requireUuid(dataKey.playerUUID()), DataValues.encode(entry.getValue().orElse(null)))) {
+                    return false;
+                }
+            }
+            if (forceEveryWrite) {
+                journal.force();
+            }
+        }
+        return true;
+    }
+
+    private void writeOrSplit(Map<DataKey, Optional<Object>> batch) throws SQLException {
+        try {
+            writeRows(batch);
+            writeBuffer.confirm(batch);
+            if (!rowFailures.isEmpty()) {
+                batch.keySet().forEach(rowFailures::remove);
+            }
+            return;
+        } catch (SQLException | RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            if (batch.size() == 1) {
+                rowFailed(batch, e);
+                return;
+            }
+        }
+
+        Map<DataKey, Optional<Object>> half = new HashMap<>();
+        Map<DataKey, Optional<Object>> rest = new HashMap<>();
+        for (Map.Entry<DataKey, Optional<Object>> entry : batch.entrySet()) {
+            (half.size() < batch.size() / 2 ? half : rest).put(entry.getKey(), entry.getValue());
+        }
+        writeOrSplit(half);
+        writeOrSplit(rest);
+    }
+
+    /**
+     * Counts a failed single-row write. Once it has failed too many flushes in a row it leaves the
+     * buffer (and so the journal) and is appended to {@code transfers/quarantine.gz}, from where
+     * {@code /gcore import quarantine} can write it again once the cause is fixed.
+     */
+    private void rowFailed(Map<DataKey, Optional<Object>> row, Exception e) {
+        DataKey dataKey = row.keySet().iterator().next();
+        int failures = rowFailures.merge(dataKey, 1, Integer::sum);
+        if (failures < MAX_ROW_FAILURES) {
+            logger.warning("Buffered write of {}.{} for {} failed, retrying with the next flush: {}",
+                    dataKey.namespace(), dataKey.key(), dataKey.playerUUID(), e.getMessage());
+            return;
+        }
+        rowFailures.remove(dataKey);
+        writeBuffer.confirm(row);
+        metrics.counter("writes_quarantined", "", dataKey.namespace()).increment();
+        logger.severe("Quarantined buffered write of " + dataKey.namespace() + "." + dataKey.key() + " for "
+                + dataKey.playerUUID() + " after " + failures + " failed flushes: " + e.getMessage(), e);
+
+        File file = new File(dataFolder, "transfers/quarantine.gz");
+        try {
+            StoredRow stored = new StoredRow(requireUuid(dataKey.playerUUID()), dataKey.namespace(), dataKey.key(),
+                    DataValues.encode(row.get(dataKey).orElse(null)));
+            file.getParentFile().mkdirs();
+            // Each row is its own gzip member; readers see the concatenation as one stream
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file, true)),
+                    StandardCharsets.UTF_8)) {
+                DataTransfer.writeLine(writer, stored);
+            }
+        } catch (IOException | RuntimeException saveError) {
+            logger.warning("Could not save the quarantined write to {}: {}", file.getName(), saveError.getMessage());
+        }
+    }
+
+    // Failures where the same rows may well succeed later, so the batch is not split
+    private static boolean isTransient(Exception e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        if (e instanceof SQLException sqlException) {
+            String state = sqlException.getSQLState();
+            // 08: connection errors, 40: transaction rollbacks such as deadlocks
+            return state != null && (state.startsWith("08") || state.startsWith("40"));
+        }
+        // Raised when the pool or the SQLite writer is closed
+        return e instanceof IllegalStateException;
+    }
+
+    static byte[] uuidToBytes(String playerUUID) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(playerUUID);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    static String uuidFromBytes(byte[] bytes) {
+        return uuidOf(bytes).toString();
+    }
+
+    static UUID uuidOf(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static byte[] requireUuid(String playerUUID) {
+        byte[] uuid = uuidToBytes(playerUUID);
+        if (uuid == null) {
+            throw new IllegalArgumentException("Invalid player UUID: " + playerUUID);
+        }
+        return uuid;
     }
 
     public void closeConnection() {
+        if (usageExecutor != null) {
+            usageExecutor.shutdownNow();
+        }
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            try {
+                flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushPendingWrites();
+            if (writeBuffer != null && !writeBuffer.isEmpty()) {
+                String fate = "";
+                if (journal != null) {
+                    // Writes buffered while the journal was full have no record yet
+                    WriteJournal.Mark mark = journal.mark();
+                    if (rejournal(writeBuffer.snapshot())) {
+                        journal.truncate(mark);
+                        fate = ", they stay in the journal for the next start";
+                    } else {
+                        fate = ", the journal is full so writes made while it overflowed are lost";
+                    }
+                }
+                logger.severe("Closing database with " + writeBuffer.size() + " unflushed player data writes" + fate);
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warning("Failed to close the write journal: " + e.getMessage());
+            }
+        }
+        if (sqliteWriter != null) {
+            sqliteWriter.close();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             logger.info("Database connection pool closed");
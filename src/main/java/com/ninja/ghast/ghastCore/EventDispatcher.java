@@ -0,0 +1,312 @@
+package com.ninja.ghast.ghastCore;
+
+import com.ninja.ghast.ghastCore.api.EventBus;
+import com.ninja.ghast.ghastCore.api.Subscribe;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * The event bus behind {@link EventBus}. Each event class has a route holding one handler array
+ * per lane; posting reads the route from a {@link ClassValue} and walks the arrays, so an event
+ * without handlers costs a lookup and two empty-array reads. Registration replaces the arrays
+ * under a lock. Annotated methods are bound through {@link LambdaMetafactory} into plain
+ * {@link Consumer}s, so delivery is an interface call rather than reflection. That needs a lookup
+ * with full privilege in the listener's module; listeners from an extension's class loader
+ * registered without the extension's own lookup are called through a method handle instead.
+ */
+public class EventDispatcher {
+    private static final Handler[] NONE = new Handler[0];
+    private static final Comparator<Handler> BY_PRIORITY = Comparator.comparingInt(Handler::priority).reversed();
+
+    private final Executor async;
+    private final LogManager logger;
+    private final MetricsRegistry metrics;
+    private final Map<String, Owner> owners = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private final ClassValue<Route> routes = new ClassValue<>() {
+        @Override
+        protected Route computeValue(Class<?> type) {
+            return new Route();
+        }
+    };
+
+    public EventDispatcher(Executor async, LogManager logger, MetricsRegistry metrics) {
+        this.async = async;
+        this.logger = logger;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the event bus of one owner, removing the handlers of an earlier owner with the same name.
+     */
+    public EventBus forOwner(String name) {
+        Owner owner = new Owner(name);
+        Owner previous = owners.put(name.toLowerCase(), owner);
+        if (previous != null) {
+            previous.removeAll();
+        }
+        return owner;
+    }
+
+    /**
+     * Removes the handlers of an owner, e.g. when an extension is unloaded.
+     */
+    public void unregisterAll(String name) {
+        Owner owner = owners.remove(name.toLowerCase());
+        if (owner != null) {
+            owner.removeAll();
+        }
+    }
+
+    public void post(Object event) {
+        Route route = routes.get(event.getClass());
+        for (Handler handler : route.sync) {
+            handler.deliver(event);
+        }
+        Handler[] asyncHandlers = route.async;
+        if (asyncHandlers.length > 0) {
+            try {
+                async.execute(() -> {
+                    for (Handler handler : asyncHandlers) {
+                        handler.deliver(event);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // GhastCore is shutting down
+            }
+        }
+    }
+
+    public boolean hasSubscribers(Class<?> type) {
+        Route route = routes.get(type);
+        return route.sync.length > 0 || route.async.length > 0;
+    }
+
+    private void add(Handler handler) {
+        synchronized (lock) {
+            Route route = routes.get(handler.type);
+            if (handler.async) {
+                route.async = with(route.async, handler);
+            } else {
+                route.sync = with(route.sync, handler);
+            }
+        }
+    }
+
+    private void remove(Handler handler) {
+        synchronized (lock) {
+            Route route = routes.get(handler.type);
+            if (handler.async) {
+                route.async = without(route.async, handler);
+            } else {
+                route.sync = without(route.sync, handler);
+            }
+        }
+    }
+
+    private static Handler[] with(Handler[] handlers, Handler handler) {
+        Handler[] result = Arrays.copyOf(handlers, handlers.length + 1);
+        result[handlers.length] = handler;
+        // Stable, so handlers of equal priority keep registration order
+        Arrays.sort(result, BY_PRIORITY);
+        return result;
+    }
+
+    private static Handler[] without(Handler[] handlers, Handler handler) {
+        Handler[] result = Arrays.stream(handlers).filter(h -> h != handler).toArray(Handler[]::new);
+        return result.length == 0 ? NONE : result;
+    }
+
+    /**
+     * Binds a handler method to its listener as a {@link Consumer}, through a lookup with access
+     * to the listener's class so non-public methods work too. {@code caller} is the lookup the
+     * listener was registered with, or GhastCore's own.
+     */
+    @SuppressWarnings("unchecked")
+    static Consumer<Object> bind(Object listener, Method method, MethodHandles.Lookup caller) {
+        Class<?> owner = method.getDeclaringClass();
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, caller);
+            MethodHandle target = lookup.unreflect(method);
+            if (!lookup.hasFullPrivilegeAccess()) {
+                // From another module the lookup loses MODULE access, which LambdaMetafactory requires
+                MethodHandle handle = (isStatic ? target : target.bindTo(listener))
+                        .asType(MethodType.methodType(void.class, Object.class));
+                return event -> invoke(handle, event);
+            }
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                    isStatic ? MethodType.methodType(Consumer.class) : MethodType.methodType(Consumer.class, owner),
+                    MethodType.methodType(void.class, Object.class), target,
+                    MethodType.methodType(void.class, method.getParameterTypes()[0]));
+            return isStatic
+                    ? (Consumer<Object>) site.getTarget().invoke()
+                    : (Consumer<Object>) site.getTarget().invoke(listener);
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Cannot bind event handler " + owner.getName() + "." + method.getName(), e);
+        }
+    }
+
+    private static void invoke(MethodHandle handle, Object event) {
+        try {
+            handle.invokeExact(event);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static final class Route {
+        private volatile Handler[] sync = NONE;
+        private volatile Handler[] async = NONE;
+    }
+
+    // Compared by identity: the same consumer may be subscribed twice
+    private static final class Handler {
+        private final Owner owner;
+        private final Class<?> type;
+        private final Object listener;
+        private final Consumer<Object> target;
+        private final boolean async;
+        private final int priority;
+
+        Handler(Owner owner, Class<?> type, Object listener, Consumer<Object> target, boolean async, int priority) {
+            this.owner = owner;
+            this.type = type;
+            this.listener = listener;
+            this.target = target;
+            this.async = async;
+            this.priority = priority;
+        }
+
+        int priority() {
+            return priority;
+        }
+
+        void deliver(Object event) {
+            try {
+                target.accept(event);
+            } catch (Throwable e) {
+                owner.failed(type, e);
+            }
+        }
+    }
+
+    private final class Owner implements EventBus {
+        private final String name;
+        private final List<Handler> handlers = new ArrayList<>();
+        private boolean removed;
+
+        Owner(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void register(Object listener) {
+            register(listener, MethodHandles.lookup());
+        }
+
+        @Override
+        public void register(Object listener, MethodHandles.Lookup lookup) {
+            List<Handler> found = new ArrayList<>();
+            for (Class<?> type = listener.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+                for (Method method : type.getDeclaredMethods()) {
+                    Subscribe subscribe = method.getAnnotation(Subscribe.class);
+                    if (subscribe == null || method.isBridge()) {
+                        continue;
+                    }
+                    if (method.getParameterCount() != 1 || method.getParameterTypes()[0].isPrimitive()) {
+                        throw new IllegalArgumentException("Event handler " + type.getName() + "." + method.getName()
+                                + " must take exactly one event parameter");
+                    }
+                    found.add(new Handler(this, method.getParameterTypes()[0], listener, bind(listener, method, lookup),
+                            subscribe.async(), subscribe.priority()));
+                }
+            }
+            found.forEach(this::add);
+        }
+
+        @Override
+        public void unregister(Object listener) {
+            List<Handler> matching = new ArrayList<>();
+            synchronized (this) {
+                handlers.removeIf(handler -> handler.listener == listener && matching.add(handler));
+            }
+            matching.forEach(EventDispatcher.this::remove);
+        }
+
+        @Override
+        public <E> Subscription subscribe(Class<E> type, Consumer<? super E> handler) {
+            return subscribe(type, handler, false);
+        }
+
+        @Override
+        public <E> Subscription subscribeAsync(Class<E> type, Consumer<? super E> handler) {
+            return subscribe(type, handler, true);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <E> Subscription subscribe(Class<E> type, Consumer<? super E> handler, boolean async) {
+            Handler registered = new Handler(this, type, handler, (Consumer<Object>) handler, async, 0);
+            add(registered);
+            return () -> {
+                synchronized (this) {
+                    if (!handlers.remove(registered)) {
+                        return;
+                    }
+                }
+                remove(registered);
+            };
+        }
+
+        @Override
+        public void post(Object event) {
+            EventDispatcher.this.post(event);
+        }
+
+        @Override
+        public boolean hasSubscribers(Class<?> type) {
+            return EventDispatcher.this.hasSubscribers(type);
+        }
+
+        // Handlers added after the owner was unloaded are ignored
+        private synchronized void add(Handler handler) {
+            if (!removed) {
+                handlers.add(handler);
+                EventDispatcher.this.add(handler);
+            }
+        }
+
+        private void removeAll() {
+            List<Handler> all;
+            synchronized (this) {
+                removed = true;
+                all = new ArrayList<>(handlers);
+                handlers.clear();
+            }
+            all.forEach(EventDispatcher.this::remove);
+        }
+
+        private void failed(Class<?> type, Throwable e) {
+            metrics.counter("event_handler_errors", type.getSimpleName(), name).increment();
+            logger.severe("Event handler of " + name + " failed on " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -23,7 +23,7 @@ public abstract class ExtensionBase extends JavaPlugin {
             return;
         }
 
-        api = core.getAPI();
+        api = core.createExtensionAPI(getExtensionInfo());
         onExtensionEnable();
         getLogger().info("Extension " + getDescription().getName() + " enabled");
     }
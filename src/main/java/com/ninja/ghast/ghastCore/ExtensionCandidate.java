@@ -0,0 +1,16 @@
+package com.ninja.ghast.ghastCore;
+
+import org.bukkit.plugin.PluginDescriptionFile;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * An extension JAR whose plugin.yml has been read but which is not loaded yet. {@code triggers}
+ * lists the event classes under {@code ghastcore-triggers} that load a lazy extension.
+ */
+public record ExtensionCandidate(File file, PluginDescriptionFile description, List<String> triggers, long inspectNanos) {
+    public String name() {
+        return description.getName();
+    }
+}
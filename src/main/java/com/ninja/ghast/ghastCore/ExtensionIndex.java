@@ -0,0 +1,198 @@
+package com.ninja.ghast.ghastCore;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.PluginDescriptionFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Logger;
+
+/**
+ * On-disk record of the extension JARs seen so far, so rescans only open JARs that changed.
+ * A JAR counts as unchanged while its size and modification time match; when they differ
+ * the content hash decides whether plugin.yml has to be read again.
+ */
+public class ExtensionIndex {
+    private final File extensionsFolder;
+    private final File indexFile;
+    private final Logger logger;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger jarReads = new AtomicInteger();
+
+    private record Entry(long size, long modified, String sha256, String pluginYml,
+                         PluginDescriptionFile description, List<String> triggers) {
+        static Entry parse(long size, long modified, String sha256, String pluginYml) throws InvalidDescriptionException {
+            List<String> triggers = YamlConfiguration.loadConfiguration(new StringReader(pluginYml)).getStringList("ghastcore-triggers");
+            return new Entry(size, modified, sha256, pluginYml, new PluginDescriptionFile(new StringReader(pluginYml)), triggers);
+        }
+    }
+
+    public ExtensionIndex(File extensionsFolder, File indexFile, Logger logger) {
+        this.extensionsFolder = extensionsFolder;
+        this.indexFile = indexFile;
+        this.logger = logger;
+        load();
+    }
+
+    /**
+     * Returns the plugin description of a JAR, reading the JAR only if it changed since it was indexed.
+     * Returns null if the JAR has no plugin.yml. Safe to call from several threads.
+     */
+    public PluginDescriptionFile describe(File file) throws IOException, InvalidDescriptionException {
+        String path = relativePath(file);
+        long size = file.length();
+        long modified = file.lastModified();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.size() == size && entry.modified() == modified) {
+            return entry.description();
+        }
+
+        String sha256 = sha256(file);
+        if (entry != null && entry.sha256().equals(sha256)) {
+            entries.put(path, new Entry(size, modified, sha256, entry.pluginYml(), entry.description(), entry.triggers()));
+            return entry.description();
+        }
+
+        jarReads.incrementAndGet();
+        String pluginYml = readPluginYml(file);
+        if (pluginYml == null) {
+            entries.remove(path);
+            return null;
+        }
+        Entry parsed = Entry.parse(size, modified, sha256, pluginYml);
+        entries.put(path, parsed);
+        return parsed.description();
+    }
+
+    /**
+     * Returns the trigger events declared by a JAR that has been described.
+     */
+    public List<String> triggers(File file) {
+        Entry entry = entries.get(relativePath(file));
+        return entry != null ? entry.triggers() : List.of();
+    }
+
+    public void remove(File file) {
+        entries.remove(relativePath(file));
+    }
+
+    /**
+     * Drops entries for JARs that are no longer present.
+     */
+    public void retainOnly(Collection<File> files) {
+        Set<String> present = new HashSet<>();
+        for (File file : files) {
+            present.add(relativePath(file));
+        }
+        entries.keySet().retainAll(present);
+    }
+
+    /**
+     * Returns how many JARs were opened since the last call.
+     */
+    public int takeJarReads() {
+        return jarReads.getAndSet(0);
+    }
+
+    public synchronized void save() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        entries.forEach((path, entry) -> {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("path", path);
+            map.put("size", entry.size());
+            map.put("modified", entry.modified());
+            map.put("sha256", entry.sha256());
+            map.put("name", entry.description().getName());
+            map.put("version", entry.description().getVersion());
+            map.put("plugin-yml", entry.pluginYml());
+            list.add(map);
+        });
+
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("extensions", list);
+        try {
+            File temp = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+            Files.writeString(temp.toPath(), yaml.saveToString(), StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Failed to save extension index: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        YamlConfiguration yaml = new YamlConfiguration();
+        try {
+            yaml.load(indexFile);
+        } catch (IOException | InvalidConfigurationException e) {
+            logger.warning("Ignoring unreadable extension index: " + e.getMessage());
+            return;
+        }
+        for (Map<?, ?> map : yaml.getMapList("extensions")) {
+            try {
+                entries.put((String) map.get("path"), Entry.parse(
+                        ((Number) map.get("size")).longValue(),
+                        ((Number) map.get("modified")).longValue(),
+                        (String) map.get("sha256"),
+                        (String) map.get("plugin-yml")));
+            } catch (InvalidDescriptionException | RuntimeException e) {
+                // The JAR is simply read again on the next scan
+                logger.warning("Skipping invalid extension index entry " + map.get("path"));
+            }
+        }
+    }
+
+    private String relativePath(File file) {
+        return extensionsFolder.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private static String readPluginYml(File file) throws IOException {
+        try (JarFile jar = new JarFile(file)) {
+            JarEntry pluginYml = jar.getJarEntry("plugin.yml");
+            if (pluginYml == null) {
+                return null;
+            }
+            try (InputStream stream = jar.getInputStream(pluginYml)) {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -1,70 +1,188 @@
 package com.ninja.ghast.ghastCore;
 
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.InvalidDescriptionException;
 import org.bukkit.plugin.InvalidPluginException;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.jar.JarFile;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class ExtensionManager {
     private final GhastCore plugin;
     private final File extensionsFolder;
     private final Map<String, ExtensionInfo> extensions;
-    private final Map<String, Long> lastUsed;
+    private final Map<String, ExtensionMetadata> usage;
+    private final Map<String, ExtensionMetadata> usageByNamespace;
+    private final Map<String, ExtensionCandidate> loadedFrom;
+    private final Map<String, ExtensionStats> stats;
+    private final Map<String, PendingExtension> pending;
+    private final ExtensionIndex index;
+    private ExtensionWatcher watcher;
 
     public ExtensionManager(GhastCore plugin) {
         this.plugin = plugin;
         this.extensionsFolder = new File(plugin.getDataFolder(), "extensions");
         this.extensions = new ConcurrentHashMap<>();
-        this.lastUsed = new ConcurrentHashMap<>();
+        this.usage = new ConcurrentHashMap<>();
+        this.usageByNamespace = new ConcurrentHashMap<>();
+        this.loadedFrom = new ConcurrentHashMap<>();
+        this.stats = new ConcurrentHashMap<>();
+        this.pending = new ConcurrentHashMap<>();
         if (!extensionsFolder.exists()) {
             extensionsFolder.mkdirs();
         }
+        this.index = new ExtensionIndex(extensionsFolder, new File(plugin.getDataFolder(), "extension-index.yml"), plugin.getLogger());
     }
 
     public void scanExtensions() {
-        List<File> files = scanExtensionFiles();
-        if (files.isEmpty()) {
-            plugin.getLogger().info("No extensions found in " + extensionsFolder.getPath());
-            return;
-        }
-        for (File file : files) {
-            plugin.getLogger().info("Scanned extension: " + file.getName());
+        for (ExtensionCandidate candidate : inspectExtensions()) {
+            plugin.getLogger().info("Scanned extension: " + candidate.name() + " (" + candidate.file().getName() + ")");
         }
     }
 
     public void loadAllExtensions() {
+        loadExtensions(inspectExtensions());
+    }
+
+    /**
+     * Reads the plugin.yml of every extension JAR in parallel, opening each JAR once.
+     * Does not touch the plugin manager, so it may run off the main thread.
+     */
+    public List<ExtensionCandidate> inspectExtensions() {
         List<File> files = scanExtensionFiles();
         if (files.isEmpty()) {
+            index.retainOnly(files);
+            index.save();
             plugin.getLogger().info("No extensions found in " + extensionsFolder.getPath());
+            return List.of();
+        }
+
+        List<Future<ExtensionCandidate>> futures = new ArrayList<>(files.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (File file : files) {
+                futures.add(executor.submit(() -> inspect(file)));
+            }
+        }
+
+        List<ExtensionCandidate> candidates = new ArrayList<>(futures.size());
+        for (Future<ExtensionCandidate> future : futures) {
+            ExtensionCandidate candidate = future.resultNow();
+            if (candidate != null) {
+                candidates.add(candidate);
+            }
+        }
+        index.retainOnly(files);
+        index.save();
+        plugin.getLogger().info("Found " + candidates.size() + " extensions, " + index.takeJarReads() + " JARs changed since the last scan");
+        return candidates;
+    }
+
+    private ExtensionCandidate inspect(File file) {
+        long start = System.nanoTime();
+        try {
+            PluginDescriptionFile description = index.describe(file);
+            if (description == null) {
+                plugin.getLogger().warning("Extension " + file.getName() + " has no plugin.yml, skipping");
+                return null;
+            }
+            return new ExtensionCandidate(file, description, index.triggers(file), System.nanoTime() - start);
+        } catch (Exception e) {
+            plugin.getLogger().warning("Invalid extension JAR: " + file.getName() + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Loads the given extensions, or registers them as pending when {@code extensions.lazy-load} is on.
+     * Must run on the main thread.
+     */
+    public void loadExtensions(List<ExtensionCandidate> candidates) {
+        if (plugin.getConfig().getBoolean("extensions.lazy-load", false)) {
+            registerPending(candidates);
+        } else {
+            enableExtensions(candidates);
+        }
+    }
+
+    private void registerPending(List<ExtensionCandidate> candidates) {
+        PluginManager pm = plugin.getServer().getPluginManager();
+        int registered = 0;
+        for (ExtensionCandidate candidate : candidates) {
+            Plugin existing = pm.getPlugin(candidate.name());
+            if (existing != null && existing.isEnabled()) {
+                continue;
+            }
+            String name = candidate.name().toLowerCase();
+            PendingExtension pendingExtension = new PendingExtension(plugin, candidate);
+            PendingExtension replaced = pending.put(name, pendingExtension);
+            if (replaced != null) {
+                replaced.uninstall();
+            }
+            pendingExtension.install(() -> loadExtension(name));
+            registered++;
+        }
+        if (registered > 0) {
+            plugin.getLogger().info("Registered " + registered + " extensions for loading on first use");
+        }
+    }
+
+    /**
+     * Loads and enables extensions so that each one comes after its depend and softdepend entries.
+     * Must run on the main thread.
+     */
+    private void enableExtensions(List<ExtensionCandidate> candidates) {
+        if (candidates.isEmpty()) {
             return;
         }
 
         boolean continueOnError = plugin.getConfig().getBoolean("extensions.continue-on-error", true);
         int maxLoaded = plugin.getConfig().getInt("extensions.max-loaded", 15);
         PluginManager pm = plugin.getServer().getPluginManager();
+        long totalStart = System.nanoTime();
+        List<String> timings = new ArrayList<>();
 
-        for (File file : files) {
+        for (ExtensionCandidate candidate : orderByDependencies(candidates, pm)) {
+            File file = candidate.file();
             if (extensions.size() >= maxLoaded) {
                 plugin.getLogger().warning("Reached maximum extension limit of " + maxLoaded);
                 break;
             }
+            Plugin existing = pm.getPlugin(candidate.name());
+            if (existing != null && existing.isEnabled()) {
+                plugin.getLogger().info("Extension " + file.getName() + " is already loaded, skipping");
+                continue;
+            }
             try {
-                // Check if the plugin is already loaded
-                String pluginName = getPluginNameFromJar(file);
-                if (pluginName != null && pm.getPlugin(pluginName) != null) {
-                    plugin.getLogger().info("Extension " + file.getName() + " is already loaded, skipping");
-                    continue;
-                }
-
-                Plugin ext = pm.loadPlugin(file);
+                long loadStart = System.nanoTime();
+                // An extension unloaded for being idle stays known to the plugin manager and is only re-enabled
+                Plugin ext = existing != null ? existing : pm.loadPlugin(file);
+                long enableStart = System.nanoTime();
                 if (ext instanceof ExtensionBase) {
                     pm.enablePlugin(ext); // Enable plugin to initialize ExtensionInfo
                     ExtensionInfo info = ((ExtensionBase) ext).getExtensionInfo();
@@ -74,6 +192,10 @@ public class ExtensionManager {
                         continue;
                     }
                     registerExtension((ExtensionBase) ext, info);
+                    loadedFrom.put(info.name.toLowerCase(), candidate);
+                    trackEvents(ext, usage.get(info.name.toLowerCase()));
+                    timings.add(info.name + " (inspect " + millis(candidate.inspectNanos()) + "ms, load "
+                            + millis(enableStart - loadStart) + "ms, enable " + millis(System.nanoTime() - enableStart) + "ms)");
                     plugin.getLogger().info("Loaded extension: " + info.name);
                 } else {
                     plugin.getLogger().warning("File " + file.getName() + " is not a valid GhastCore extension");
@@ -86,20 +208,160 @@ public class ExtensionManager {
                 plugin.getLogger().severe("Failed to load extension: " + file.getName() + " - " + e.getMessage());
             }
         }
+
+        long inspectTotal = candidates.stream().mapToLong(ExtensionCandidate::inspectNanos).sum();
+        plugin.getLogger().info("Loaded " + timings.size() + " extensions in " + millis(System.nanoTime() - totalStart)
+                + "ms (" + millis(inspectTotal) + "ms of JAR inspection done in parallel)");
+        for (String timing : timings) {
+            plugin.getLogger().info("  " + timing);
+        }
     }
 
-    private String getPluginNameFromJar(File file) {
-        try (JarFile jar = new JarFile(file)) {
-            var pluginYml = jar.getEntry("plugin.yml");
-            if (pluginYml != null) {
-                var stream = jar.getInputStream(pluginYml);
-                var description = new org.bukkit.plugin.PluginDescriptionFile(stream);
-                return description.getName();
+    /**
+     * Sorts candidates topologically (Kahn's algorithm) on depend, softdepend and loadbefore.
+     * Extensions with a missing hard dependency or in a dependency cycle are left out.
+     */
+    private List<ExtensionCandidate> orderByDependencies(List<ExtensionCandidate> candidates, PluginManager pm) {
+        Map<String, ExtensionCandidate> byName = new TreeMap<>();
+        for (ExtensionCandidate candidate : candidates) {
+            if (byName.putIfAbsent(candidate.name(), candidate) != null) {
+                plugin.getLogger().warning("Duplicate extension " + candidate.name() + " in " + candidate.file().getName() + ", skipping");
+            }
+        }
+
+        Map<String, Set<String>> dependents = new HashMap<>();
+        Map<String, Integer> pending = new HashMap<>();
+        Set<String> skipped = new HashSet<>();
+        for (ExtensionCandidate candidate : byName.values()) {
+            String name = candidate.name();
+            pending.putIfAbsent(name, 0);
+            for (String dependency : candidate.description().getDepend()) {
+                if (byName.containsKey(dependency)) {
+                    addEdge(dependency, name, dependents, pending);
+                } else if (pm.getPlugin(dependency) == null) {
+                    plugin.getLogger().severe("Extension " + name + " depends on missing plugin " + dependency + ", skipping");
+                    skipped.add(name);
+                }
+            }
+            for (String dependency : candidate.description().getSoftDepend()) {
+                if (byName.containsKey(dependency)) {
+                    addEdge(dependency, name, dependents, pending);
+                }
+            }
+            for (String later : candidate.description().getLoadBefore()) {
+                if (byName.containsKey(later)) {
+                    addEdge(name, later, dependents, pending);
+                }
             }
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to read plugin.yml from " + file.getName());
         }
-        return null;
+
+        Deque<String> ready = new ArrayDeque<>();
+        for (String name : byName.keySet()) {
+            if (pending.get(name) == 0) {
+                ready.add(name);
+            }
+        }
+        List<ExtensionCandidate> ordered = new ArrayList<>(byName.size());
+        Set<String> placed = new HashSet<>();
+        while (!ready.isEmpty()) {
+            String name = ready.poll();
+            ExtensionCandidate candidate = byName.get(name);
+            placed.add(name);
+            if (!skipped.contains(name) && candidate.description().getDepend().stream().anyMatch(skipped::contains)) {
+                plugin.getLogger().severe("Extension " + name + " depends on a skipped extension, skipping");
+                skipped.add(name);
+            }
+            if (!skipped.contains(name)) {
+                ordered.add(candidate);
+            }
+            for (String dependent : dependents.getOrDefault(name, Set.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        for (String name : byName.keySet()) {
+            if (!placed.contains(name)) {
+                plugin.getLogger().severe("Extension " + name + " is part of a dependency cycle, skipping");
+            }
+        }
+        return ordered;
+    }
+
+    private static void addEdge(String before, String after, Map<String, Set<String>> dependents, Map<String, Integer> pending) {
+        if (dependents.computeIfAbsent(before, k -> new HashSet<>()).add(after)) {
+            pending.merge(after, 1, Integer::sum);
+        }
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Starts watching the extensions folder if {@code extensions.watch-folder} is enabled.
+     */
+    public void startWatching() {
+        if (!plugin.getConfig().getBoolean("extensions.watch-folder", false)) {
+            return;
+        }
+        watcher = new ExtensionWatcher(extensionsFolder,
+                plugin.getConfig().getBoolean("extensions.recursive-scan", false),
+                plugin.getConfig().getInt("extensions.max-scan-depth", 3),
+                this::onExtensionFilesChanged, plugin.getLogger());
+        try {
+            watcher.start();
+            plugin.getLogger().info("Watching " + extensionsFolder.getPath() + " for extension changes");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to watch extensions folder: " + e.getMessage());
+            watcher = null;
+        }
+    }
+
+    public void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Called from the watcher thread. New JARs are loaded on the main thread; changed JARs of
+     * loaded extensions only take effect after a restart.
+     */
+    private void onExtensionFilesChanged(Set<File> files) {
+        List<ExtensionCandidate> candidates;
+        if (files.isEmpty()) {
+            candidates = inspectExtensions();
+        } else {
+            candidates = new ArrayList<>();
+            for (File file : files) {
+                if (!file.isFile()) {
+                    index.remove(file);
+                    plugin.getLogger().info("Extension JAR removed: " + file.getName());
+                    continue;
+                }
+                ExtensionCandidate candidate = inspect(file);
+                if (candidate != null) {
+                    candidates.add(candidate);
+                }
+            }
+            index.save();
+        }
+
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            PluginManager pm = plugin.getServer().getPluginManager();
+            List<ExtensionCandidate> added = new ArrayList<>();
+            for (ExtensionCandidate candidate : candidates) {
+                if (pm.getPlugin(candidate.name()) == null) {
+                    added.add(candidate);
+                } else if (!files.isEmpty()) {
+                    plugin.getLogger().warning("Extension " + candidate.name() + " changed on disk, restart the server to apply it");
+                }
+            }
+            loadExtensions(added);
+        });
     }
 
     private List<File> scanExtensionFiles() {
@@ -122,62 +384,238 @@ public class ExtensionManager {
 
         for (File file : files) {
             if (file.isFile() && file.getName().toLowerCase().endsWith(".jar")) {
-                try (JarFile jar = new JarFile(file)) {
-                    jarFiles.add(file);
-                } catch (Exception e) {
-                    plugin.getLogger().warning("Invalid extension JAR: " + file.getName());
-                }
+                jarFiles.add(file);
             } else if (recursive && file.isDirectory()) {
                 scanDirectory(file, jarFiles, recursive, maxDepth, currentDepth + 1);
             }
         }
     }
 
+    /**
+     * Decays every extension's heat score and unloads extensions that have gone cold. An extension
+     * is unloaded once it has not been used for {@code extensions.unload-after-minutes}; when the old
+     * generation is fuller than {@code extensions.memory-pressure-threshold} after a collection, the
+     * coldest extension not used within the last minute is unloaded as well. Called once a minute.
+     */
     public void unloadIdleExtensions() {
         long unloadAfter = plugin.getConfig().getLong("extensions.unload-after-minutes", 30) * 60 * 1000L;
-        PluginManager pm = plugin.getServer().getPluginManager();
+        double pressureThreshold = plugin.getConfig().getDouble("extensions.memory-pressure-threshold", 0.85);
+        double halfLife = Math.max(1, plugin.getConfig().getDouble("extensions.heat-half-life-minutes", 10));
+        double factor = Math.pow(0.5, 1 / halfLife);
+        long now = System.currentTimeMillis();
 
-        lastUsed.forEach((name, lastUsedTime) -> {
-            if (System.currentTimeMillis() - lastUsedTime > unloadAfter) {
-                ExtensionInfo info = extensions.get(name);
-                if (info != null) {
-                    Plugin plugin = pm.getPlugin(info.name);
-                    if (plugin != null) {
-                        pm.disablePlugin(plugin);
-                        extensions.remove(name);
-                        lastUsed.remove(name);
-                        this.plugin.getLogger().info("Unloaded idle extension: " + name);
-                    }
+        List<ExtensionMetadata> idle = new ArrayList<>();
+        ExtensionMetadata coldest = null;
+        for (ExtensionMetadata metadata : usage.values()) {
+            double heat = metadata.decay(factor, now);
+            if (now - metadata.getLastUsed() > unloadAfter) {
+                idle.add(metadata);
+            } else if (now - metadata.getLastUsed() >= TimeUnit.MINUTES.toMillis(1)
+                    && (coldest == null || heat < coldest.getHeat())) {
+                coldest = metadata;
+            }
+        }
+
+        double pressure = heapPressure();
+        if (pressure > pressureThreshold && coldest != null) {
+            plugin.getLogger().info("Heap " + Math.round(pressure * 100) + "% full after GC, unloading coldest extension");
+            idle.add(coldest);
+        }
+        if (idle.isEmpty()) {
+            return;
+        }
+
+        Runnable unload = () -> {
+            for (ExtensionMetadata metadata : idle) {
+                unloadExtension(metadata.getName());
+            }
+        };
+        if (plugin.getServer().isPrimaryThread()) {
+            unload.run();
+        } else if (plugin.isEnabled()) {
+            plugin.getServer().getScheduler().runTask(plugin, unload);
+        }
+    }
+
+    private void unloadExtension(String name) {
+        ExtensionInfo info = extensions.get(name);
+        Plugin ext = info != null ? plugin.getServer().getPluginManager().getPlugin(info.name) : null;
+        if (ext == null || !ext.isEnabled()) {
+            return;
+        }
+        ExtensionCandidate candidate = loadedFrom.remove(name);
+        plugin.getServer().getPluginManager().disablePlugin(ext);
+        unregisterExtension(name);
+        plugin.getLogger().info("Unloaded idle extension: " + info.name);
+        if (candidate != null && plugin.getConfig().getBoolean("extensions.lazy-load", false)) {
+            registerPending(List.of(candidate));
+        }
+    }
+
+    /**
+     * Returns how full the old generation was after the last collection, or overall heap use
+     * when the JVM does not report it.
+     */
+    private static double heapPressure() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            // Young pools only support the collection threshold, so this picks the old generation
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+                    && pool.isUsageThresholdSupported()) {
+                MemoryUsage afterGc = pool.getCollectionUsage();
+                long max = pool.getUsage().getMax();
+                if (afterGc != null && max > 0) {
+                    return (double) afterGc.getUsed() / max;
                 }
             }
-        });
+        }
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        return heap.getMax() > 0 ? (double) heap.getUsed() / heap.getMax() : 0;
+    }
+
+    /**
+     * Wraps the extension's registered listeners so every event it handles counts as a use.
+     * Listeners the extension registers later, outside onEnable, are not tracked.
+     */
+    private void trackEvents(Plugin ext, ExtensionMetadata metadata) {
+        if (metadata == null) {
+            return;
+        }
+        for (HandlerList handlers : HandlerList.getHandlerLists()) {
+            for (RegisteredListener listener : handlers.getRegisteredListeners()) {
+                if (listener.getPlugin() == ext && !(listener instanceof UsageTrackingListener)) {
+                    handlers.unregister(listener);
+                    handlers.register(new UsageTrackingListener(listener, metadata));
+                }
+            }
+        }
+    }
+
+    private static final class UsageTrackingListener extends RegisteredListener {
+        private final RegisteredListener delegate;
+        private final ExtensionMetadata metadata;
+
+        UsageTrackingListener(RegisteredListener delegate, ExtensionMetadata metadata) {
+            super(delegate.getListener(), (listener, event) -> { }, delegate.getPriority(), delegate.getPlugin(),
+                    delegate.isIgnoringCancelled());
+            this.delegate = delegate;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public void callEvent(@NotNull Event event) throws EventException {
+            metadata.touch();
+            delegate.callEvent(event);
+        }
     }
 
     public void registerExtension(ExtensionBase extension, ExtensionInfo info) {
         extensions.put(info.name.toLowerCase(), info);
-        lastUsed.put(info.name.toLowerCase(), System.currentTimeMillis());
+        ExtensionMetadata metadata = new ExtensionMetadata(info.name.toLowerCase(), info.namespace, System.currentTimeMillis());
+        usage.put(info.name.toLowerCase(), metadata);
+        usageByNamespace.put(info.namespace, metadata);
     }
 
     public void unregisterExtension(String name) {
+        if (plugin.getTickScheduler() != null) {
+            plugin.getTickScheduler().cancelAll(name);
+        }
+        if (plugin.getEventDispatcher() != null) {
+            plugin.getEventDispatcher().unregisterAll(name);
+        }
         extensions.remove(name.toLowerCase());
-        lastUsed.remove(name.toLowerCase());
+        loadedFrom.remove(name.toLowerCase());
+        ExtensionMetadata metadata = usage.remove(name.toLowerCase());
+        if (metadata != null) {
+            usageByNamespace.remove(metadata.getNamespace(), metadata);
+        }
+    }
+
+    /**
+     * Records a use of the extension with the given plugin name, e.g. one of its commands.
+     */
+    public void touch(String name) {
+        ExtensionMetadata metadata = usage.get(name.toLowerCase());
+        if (metadata != null) {
+            metadata.touch();
+        }
+    }
+
+    /**
+     * Records a use of the extension owning a data namespace.
+     */
+    public void touchNamespace(String namespace) {
+        ExtensionMetadata metadata = usageByNamespace.get(namespace);
+        if (metadata != null) {
+            metadata.touch();
+        }
+    }
+
+    public ExtensionMetadata getUsage(String name) {
+        return usage.get(name.toLowerCase());
+    }
+
+    /**
+     * Returns the database accounting of an extension. Kept across unloads, so totals cover the whole uptime.
+     */
+    public ExtensionStats getStats(String name) {
+        return stats.computeIfAbsent(name.toLowerCase(), k -> new ExtensionStats());
     }
 
     public Map<String, ExtensionInfo> getExtensions() {
         return new HashMap<>(extensions);
     }
 
+    /**
+     * Loads a pending extension, after any of its dependencies that are still pending.
+     * Must run on the main thread.
+     */
     public boolean loadExtension(String name) {
-        // Placeholder for specific extension loading
-        return false;
+        PendingExtension pendingExtension = pending.remove(name.toLowerCase());
+        if (pendingExtension == null) {
+            return extensions.containsKey(name.toLowerCase());
+        }
+        pendingExtension.uninstall();
+
+        ExtensionCandidate candidate = pendingExtension.getCandidate();
+        List<String> dependencies = new ArrayList<>(candidate.description().getDepend());
+        dependencies.addAll(candidate.description().getSoftDepend());
+        for (String dependency : dependencies) {
+            if (pending.containsKey(dependency.toLowerCase())) {
+                loadExtension(dependency);
+            }
+        }
+
+        enableExtensions(List.of(candidate));
+        syncCommands();
+        return extensions.containsKey(candidate.name().toLowerCase());
     }
 
+    /**
+     * Loads every pending extension. Must run on the main thread.
+     */
     public void loadAllPending() {
-        loadAllExtensions();
+        List<ExtensionCandidate> candidates = new ArrayList<>();
+        for (String name : new ArrayList<>(pending.keySet())) {
+            PendingExtension pendingExtension = pending.remove(name);
+            if (pendingExtension != null) {
+                pendingExtension.uninstall();
+                candidates.add(pendingExtension.getCandidate());
+            }
+        }
+        enableExtensions(candidates);
+        syncCommands();
     }
 
     public Map<String, ExtensionInfo> getPendingExtensions() {
-        // Placeholder for pending extensions
-        return new HashMap<>();
+        Map<String, ExtensionInfo> result = new HashMap<>();
+        pending.forEach((name, pendingExtension) -> result.put(name, pendingExtension.getInfo()));
+        return result;
+    }
+
+    // Clients only learn about commands registered after startup when their command tree is resent
+    private void syncCommands() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            player.updateCommands();
+        }
     }
 }
\ No newline at end of file
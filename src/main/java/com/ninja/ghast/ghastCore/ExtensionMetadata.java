@@ -1,11 +1,55 @@
 package com.ninja.ghast.ghastCore;
 
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Usage of a loaded extension. {@link #touch()} is called on every API call, command and event,
+ * so it only bumps a counter; {@link #decay} folds the counter into an exponentially decaying
+ * heat score once per check interval.
+ */
 public class ExtensionMetadata {
-    public long lastUsed;
-    public boolean isActive;
+    private final String name;
+    private final String namespace;
+    private final LongAdder uses = new LongAdder();
+    private volatile long lastUsed;
+    private volatile double heat;
 
-    public ExtensionMetadata(long lastUsed, boolean isActive) {
+    public ExtensionMetadata(String name, String namespace, long lastUsed) {
+        this.name = name;
+        this.namespace = namespace;
         this.lastUsed = lastUsed;
-        this.isActive = isActive;
     }
-}
\ No newline at end of file
+
+    public void touch() {
+        uses.increment();
+    }
+
+    /**
+     * Adds the uses since the last call to the heat score after decaying it by {@code factor}.
+     * Only called from the idle check, one thread at a time.
+     */
+    public double decay(double factor, long now) {
+        long recent = uses.sumThenReset();
+        if (recent > 0) {
+            lastUsed = now;
+        }
+        heat = heat * factor + recent;
+        return heat;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public double getHeat() {
+        return heat;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ninja.ghast.ghastCore;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Database work and scheduled tasks run on behalf of one extension. The extension's API handle
+ * marks the calling thread for the duration of each call, as does {@link TickScheduler} while
+ * one of its tasks runs, and {@link DatabaseManager} reports queries and writes against whatever
+ * stats the current thread is marked with. Work done later by the write-behind flush is not
+ * attributed; its bytes are counted when the write is accepted.
+ */
+public class ExtensionStats {
+    private static final ThreadLocal<ExtensionStats> CURRENT = new ThreadLocal<>();
+
+    private final LatencyHistogram queries = new LatencyHistogram();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder syncTasks = new LongAdder();
+    private final LongAdder syncTaskNanos = new LongAdder();
+    private final LongAdder asyncTasks = new LongAdder();
+    private final LongAdder asyncTaskNanos = new LongAdder();
+
+    /**
+     * Marks the current thread as working for this extension and returns the previous mark, to be passed to {@link #exit}.
+     */
+    public ExtensionStats enter() {
+        ExtensionStats previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    public static void exit(ExtensionStats previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    static void recordQuery(long nanos) {
+        ExtensionStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.queries.record(nanos);
+        }
+    }
+
+    static void recordWrite(Object value) {
+        ExtensionStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.rowsWritten.increment();
+            stats.bytesWritten.add(DataValues.encodedSize(value));
+        }
+    }
+
+    void recordTask(boolean sync, long nanos) {
+        (sync ? syncTasks : asyncTasks).increment();
+        (sync ? syncTaskNanos : asyncTaskNanos).add(nanos);
+    }
+
+    public LatencyHistogram getQueries() {
+        return queries;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    public long getSyncTasks() {
+        return syncTasks.sum();
+    }
+
+    public long getSyncTaskNanos() {
+        return syncTaskNanos.sum();
+    }
+
+    public long getAsyncTasks() {
+        return asyncTasks.sum();
+    }
+
+    public long getAsyncTaskNanos() {
+        return asyncTaskNanos.sum();
+    }
+}
@@ -0,0 +1,41 @@
+package com.ninja.ghast.ghastCore;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginIdentifiableCommand;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.server.ServerCommandEvent;
+
+/**
+ * Counts commands that belong to an extension as a use of that extension.
+ */
+public class ExtensionUsageListener implements Listener {
+    private final GhastCore plugin;
+    private final ExtensionManager extensionManager;
+
+    public ExtensionUsageListener(GhastCore plugin, ExtensionManager extensionManager) {
+        this.plugin = plugin;
+        this.extensionManager = extensionManager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        touch(event.getMessage().substring(1));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onServerCommand(ServerCommandEvent event) {
+        touch(event.getCommand().startsWith("/") ? event.getCommand().substring(1) : event.getCommand());
+    }
+
+    private void touch(String commandLine) {
+        int space = commandLine.indexOf(' ');
+        String label = space < 0 ? commandLine : commandLine.substring(0, space);
+        Command command = plugin.getServer().getCommandMap().getCommand(label.toLowerCase());
+        if (command instanceof PluginIdentifiableCommand owned) {
+            extensionManager.touch(owned.getPlugin().getName());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.ninja.ghast.ghastCore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Watches the extensions folder and reports changed JAR files once the folder has been quiet
+ * for a second, so a JAR that is still being copied is reported once, after the copy finished.
+ * An empty set means events were lost and the whole folder should be rescanned.
+ */
+public class ExtensionWatcher {
+    private static final long QUIET_MILLIS = 1000;
+
+    private final File folder;
+    private final boolean recursive;
+    private final int maxDepth;
+    private final Consumer<Set<File>> onChange;
+    private final Logger logger;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, Integer> depths = new HashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    public ExtensionWatcher(File folder, boolean recursive, int maxDepth, Consumer<Set<File>> onChange, Logger logger) {
+        this.folder = folder;
+        this.recursive = recursive;
+        this.maxDepth = maxDepth;
+        this.onChange = onChange;
+        this.logger = logger;
+    }
+
+    public void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        register(folder.toPath(), 0);
+        thread = new Thread(this::run, "GhastCore-ExtensionWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void close() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warning("Failed to close extension folder watcher: " + e.getMessage());
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void register(Path directory, int depth) throws IOException {
+        WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        directories.put(key, directory);
+        depths.put(directory, depth);
+        if (recursive && depth < maxDepth) {
+            try (var children = Files.list(directory)) {
+                for (Path child : (Iterable<Path>) children::iterator) {
+                    if (Files.isDirectory(child)) {
+                        register(child, depth + 1);
+                    }
+                }
+            }
+        }
+    }
+
+    private void run() {
+        Set<File> changed = new HashSet<>();
+        boolean overflow = false;
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    if (overflow) {
+                        report(Set.of());
+                    } else if (!changed.isEmpty()) {
+                        report(Set.copyOf(changed));
+                    }
+                    changed.clear();
+                    overflow = false;
+                    continue;
+                }
+
+                Path directory = directories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                        overflow = true;
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (path.getFileName().toString().toLowerCase().endsWith(".jar")) {
+                        changed.add(path.toFile());
+                    } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && recursive
+                            && Files.isDirectory(path) && depths.get(directory) < maxDepth) {
+                        register(path, depths.get(directory) + 1);
+                        // JARs moved in together with the folder produce no events of their own
+                        overflow = true;
+                    }
+                }
+                if (!key.reset()) {
+                    depths.remove(directories.remove(key));
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed on shutdown
+        } catch (IOException e) {
+            logger.warning("Extension folder watcher stopped: " + e.getMessage());
+        }
+    }
+
+    private void report(Set<File> files) {
+        try {
+            onChange.accept(files);
+        } catch (RuntimeException e) {
+            logger.severe("Failed to handle extension folder change: " + e.getMessage());
+        }
+    }
+}
@@ -1,26 +1,42 @@
 package com.ninja.ghast.ghastCore;
 
+import com.ninja.ghast.ghastCore.api.EventBus;
 import com.ninja.ghast.ghastCore.api.GhastCoreAPI;
+import com.ninja.ghast.ghastCore.api.TaskScheduler;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class GhastCore extends JavaPlugin {
     private static GhastCore instance;
     private LogManager logger;
+    private LogAppender logAppender;
     private DatabaseManager dbManager;
     private ExtensionManager extensionManager;
     private GhastCoreAPI api;
     private PlayerDataManager playerDataManager;
-    private ScheduledExecutorService scheduler;
+    private TickScheduler scheduler;
+    private TaskScheduler coreTasks;
+    private EventDispatcher events;
+    private EventBus coreEvents;
+    private ExecutorService dataExecutor;
+    private MetricsRegistry metrics;
+    private CacheCoherence coherence;
 
     @Override
     public void onLoad() {
         // Initialize logger early for extension loading
         saveDefaultConfig();
-        logger = new LogManager(getLogger(), getConfig());
+        logAppender = new LogAppender(getConfig().getInt("logging.buffer-size", 4096),
+                LogAppender.Overflow.parse(getConfig().getString("logging.overflow", "drop")), getLogger());
+        logAppender.start();
+        logger = new LogManager(getLogger(), getConfig(), logAppender);
         extensionManager = new ExtensionManager(this);
         // Scan extensions without loading (safe for onLoad)
         extensionManager.scanExtensions();
@@ -32,43 +48,103 @@ public class GhastCore extends JavaPlugin {
         long start = System.currentTimeMillis();
         instance = this;
 
+        metrics = new MetricsRegistry();
+        metrics.gauge("log_buffer_size", logAppender::size);
+        metrics.gauge("log_dropped", logAppender::getDropped);
         dbManager = new DatabaseManager(this);
         boolean cachingEnabled = getConfig().getBoolean("caching.enabled", true);
-        int cacheTTL = getConfig().getInt("caching.flushIntervalSeconds", 300);
-        playerDataManager = new PlayerDataManagerImpl(dbManager, cachingEnabled, cacheTTL);
-        api = new GhastCoreAPIImpl(dbManager, this);
+        int cacheTTL = getConfig().getInt("caching.ttl-seconds", getConfig().getInt("caching.flushIntervalSeconds", 300));
+        PlayerDataCache cache = new PlayerDataCache(
+                getConfig().getLong("caching.max-entries", 100000),
+                cacheTTL,
+                getConfig().getInt("caching.negative-ttl-seconds", 30));
+        playerDataManager = new PlayerDataManagerImpl(this, cachingEnabled, cache);
+        metrics.gauge("cache_entries", cache::size);
+        if (cachingEnabled && getConfig().getBoolean("caching.coherence.enabled", false)) {
+            coherence = new CacheCoherence(this, cache, ((PlayerDataManagerImpl) playerDataManager).getRankings());
+            coherence.start();
+        }
+        // Shared by the async data calls, the scheduler's async tasks and async event handlers
+        dataExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("GhastCore-Async-", 0).factory());
+        scheduler = new TickScheduler(dataExecutor, logger, metrics, getConfig().getDouble("scheduler.tick-budget-ms", 5));
+        scheduler.start(this);
+        coreTasks = scheduler.forOwner(getName(), null);
+        events = new EventDispatcher(dataExecutor, logger, metrics);
+        coreEvents = events.forOwner(getName());
+        api = new GhastCoreAPIImpl(playerDataManager, this, dataExecutor);
+        for (String ranking : getConfig().getStringList("rankings")) {
+            int separator = ranking.indexOf(':');
+            if (separator <= 0) {
+                logger.warning("Ignoring ranking '{}', expected namespace:key", ranking);
+                continue;
+            }
+            api.declareRanking(ranking.substring(0, separator), ranking.substring(separator + 1)).exceptionally(e -> {
+                logger.severe("Failed to build ranking " + ranking + ": " + e.getMessage());
+                return null;
+            });
+        }
 
         getServer().getPluginManager().registerEvents((PlayerDataManagerImpl) playerDataManager, this);
+        getServer().getPluginManager().registerEvents(new ExtensionUsageListener(this, extensionManager), this);
 
         getCommand("gcore").setExecutor(new CoreCommand(this, extensionManager));
         getCommand("gcore").setTabCompleter(new CoreTabCompleter(extensionManager));
 
-        // Load extensions asynchronously after plugin is enabled
-        getServer().getScheduler().runTaskAsynchronously(this, () -> {
-            extensionManager.loadAllExtensions();
-            logger.info("Loaded all extensions successfully.");
+        // Inspect extension JARs off the main thread, then load them in dependency order on it
+        coreTasks.runAsync(() -> {
+            List<ExtensionCandidate> candidates = extensionManager.inspectExtensions();
+            coreTasks.runSync(() -> {
+                extensionManager.loadExtensions(candidates);
+                logger.info("Loaded all extensions successfully.");
+                extensionManager.startWatching();
+            });
         });
 
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.scheduleAtFixedRate(() -> extensionManager.unloadIdleExtensions(), 1, 1, TimeUnit.MINUTES);
+        coreTasks.runAsyncTimer(extensionManager::unloadIdleExtensions, 1, 1, TimeUnit.MINUTES);
+
+        if (getConfig().getBoolean("metrics.export-enabled", true)) {
+            PrometheusExporter exporter = new PrometheusExporter(metrics, new File(getDataFolder(), "metrics.prom"));
+            long exportInterval = Math.max(1, getConfig().getLong("metrics.export-interval-seconds", 15));
+            coreTasks.runAsyncTimer(() -> {
+                try {
+                    exporter.export();
+                } catch (IOException e) {
+                    logger.warning("Failed to write metrics file: " + e.getMessage());
+                }
+            }, exportInterval, exportInterval, TimeUnit.SECONDS);
+        }
 
-        logger.info("GhastCore enabled successfully in " + (System.currentTimeMillis() - start) + "ms");
+        logger.info("GhastCore enabled successfully in {}ms", System.currentTimeMillis() - start);
     }
 
     @Override
     public void onDisable() {
         
         if (scheduler != null) {
-            scheduler.shutdown();
+            scheduler.close();
+        }
+        if (dataExecutor != null) {
+            dataExecutor.shutdown();
+            try {
+                dataExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
 
+        if (coherence != null) {
+            coherence.stop();
+        }
         if (dbManager != null) {
+            dbManager.flushPendingWrites();
             dbManager.closeConnection();
         }
         if (extensionManager != null) {
+            extensionManager.stopWatching();
             extensionManager.unloadIdleExtensions();
         }
         logger.info("GhastCore disabled");
+        logAppender.close();
     }
 
     public static GhastCore getInstance() {
@@ -79,6 +155,17 @@ public class GhastCore extends JavaPlugin {
         return api;
     }
 
+    /**
+     * Creates the API handle of one extension, which records the extension's database work.
+     */
+    public GhastCoreAPI createExtensionAPI(ExtensionInfo info) {
+        Plugin extension = getServer().getPluginManager().getPlugin(info.name);
+        LogManager extensionLogger = logger.forExtension(info.name, extension != null ? extension.getLogger() : null);
+        ExtensionStats stats = extensionManager.getStats(info.name);
+        return new GhastCoreAPIImpl(playerDataManager, this, dataExecutor, extensionLogger, stats,
+                scheduler.forOwner(info.name, stats), events.forOwner(info.name));
+    }
+
     public ExtensionManager getExtensionManager() {
         return extensionManager;
     }
@@ -87,6 +174,37 @@ public class GhastCore extends JavaPlugin {
         return dbManager;
     }
 
+    public LogManager getLogManager() {
+        return logger;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public TickScheduler getTickScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Returns the scheduler GhastCore's own tasks run on.
+     */
+    public TaskScheduler getCoreTasks() {
+        return coreTasks;
+    }
+
+    public EventDispatcher getEventDispatcher() {
+        return events;
+    }
+
+    public EventBus getCoreEvents() {
+        return coreEvents;
+    }
+
+    public ExecutorService getDataExecutor() {
+        return dataExecutor;
+    }
+
     public PlayerDataManager getPlayerDataManager() {
         return playerDataManager;
     }
@@ -1,33 +1,270 @@
 package com.ninja.ghast.ghastCore;
 
+import com.ninja.ghast.ghastCore.api.DataCodec;
+import com.ninja.ghast.ghastCore.api.EventBus;
 import com.ninja.ghast.ghastCore.api.GhastCoreAPI;
-import org.bukkit.plugin.java.JavaPlugin;
+import com.ninja.ghast.ghastCore.api.PlayerDataEntry;
+import com.ninja.ghast.ghastCore.api.RankedEntry;
+import com.ninja.ghast.ghastCore.api.TaskScheduler;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public class GhastCoreAPIImpl implements GhastCoreAPI {
-    private final DatabaseManager dbManager;
+    private final PlayerDataManager playerDataManager;
     private final LogManager logger;
+    private final ExecutorService dataExecutor;
+    private final Executor mainThreadExecutor;
+    private final Consumer<String> namespaceUsage;
+    private final ExtensionStats stats;
+    private final TaskScheduler scheduler;
+    private final EventBus eventBus;
 
-    public GhastCoreAPIImpl(DatabaseManager dbManager, JavaPlugin plugin) {
-        this.dbManager = dbManager;
-        this.logger = new LogManager(plugin.getLogger(), plugin.getConfig());
+    public GhastCoreAPIImpl(PlayerDataManager playerDataManager, GhastCore plugin, ExecutorService dataExecutor) {
+        this(playerDataManager, plugin, dataExecutor, plugin.getLogManager(), null, plugin.getCoreTasks(), plugin.getCoreEvents());
+    }
+
+    /**
+     * Creates an API handle that logs through {@code logger}, schedules through {@code scheduler},
+     * subscribes through {@code eventBus} and records its database work in {@code stats}, or does
+     * not record it if that is null.
+     */
+    public GhastCoreAPIImpl(PlayerDataManager playerDataManager, GhastCore plugin, ExecutorService dataExecutor,
+                            LogManager logger, ExtensionStats stats, TaskScheduler scheduler, EventBus eventBus) {
+        this(playerDataManager, logger, dataExecutor, task -> {
+            if (plugin.getServer().isPrimaryThread()) {
+                task.run();
+            } else {
+                plugin.getServer().getScheduler().runTask(plugin, task);
+            }
+        }, plugin.getExtensionManager()::touchNamespace, stats, scheduler, eventBus);
+    }
+
+    public GhastCoreAPIImpl(PlayerDataManager playerDataManager, LogManager logger,
+                            ExecutorService dataExecutor, Executor mainThreadExecutor) {
+        this(playerDataManager, logger, dataExecutor, mainThreadExecutor, namespace -> { }, null, null, null);
+    }
+
+    public GhastCoreAPIImpl(PlayerDataManager playerDataManager, LogManager logger, ExecutorService dataExecutor,
+                            Executor mainThreadExecutor, Consumer<String> namespaceUsage, ExtensionStats stats,
+                            TaskScheduler scheduler, EventBus eventBus) {
+        this.playerDataManager = playerDataManager;
+        this.logger = logger;
+        this.dataExecutor = dataExecutor;
+        this.mainThreadExecutor = mainThreadExecutor;
+        this.namespaceUsage = namespaceUsage;
+        this.stats = stats;
+        this.scheduler = scheduler;
+        this.eventBus = eventBus;
+    }
+
+    private UUID use(String playerUUID, String namespace) {
+        namespaceUsage.accept(namespace);
+        return UUID.fromString(playerUUID);
+    }
+
+    private <T> T tracked(Supplier<T> call) {
+        if (stats == null) {
+            return call.get();
+        }
+        ExtensionStats previous = stats.enter();
+        try {
+            return call.get();
+        } finally {
+            ExtensionStats.exit(previous);
+        }
+    }
+
+    private void tracked(Runnable call) {
+        tracked(() -> {
+            call.run();
+            return null;
+        });
     }
 
     @Override
     public void storePlayerData(String playerUUID, String namespace, String key, String value) {
-        dbManager.storePlayerData(playerUUID, namespace, key, value);
+        tracked(() -> playerDataManager.storeData(use(playerUUID, namespace), namespace, key, value));
     }
 
     @Override
     public String getPlayerData(String playerUUID, String namespace, String key) {
-        return dbManager.getPlayerData(playerUUID, namespace, key);
+        return tracked(() -> playerDataManager.getData(use(playerUUID, namespace), namespace, key));
+    }
+
+    @Override
+    public int getInt(String playerUUID, String namespace, String key, int defaultValue) {
+        return DataValues.asInt(getValue(playerUUID, namespace, key), defaultValue);
+    }
+
+    @Override
+    public long getLong(String playerUUID, String namespace, String key, long defaultValue) {
+        return DataValues.asLong(getValue(playerUUID, namespace, key), defaultValue);
+    }
+
+    @Override
+    public double getDouble(String playerUUID, String namespace, String key, double defaultValue) {
+        return DataValues.asDouble(getValue(playerUUID, namespace, key), defaultValue);
+    }
+
+    @Override
+    public byte[] getBytes(String playerUUID, String namespace, String key) {
+        return getValue(playerUUID, namespace, key) instanceof byte[] bytes ? bytes.clone() : null;
+    }
+
+    @Override
+    public <T> T get(String playerUUID, String namespace, String key, Class<T> type) {
+        return tracked(() -> playerDataManager.getValue(use(playerUUID, namespace), namespace, key, type));
+    }
+
+    private Object getValue(String playerUUID, String namespace, String key) {
+        return tracked(() -> playerDataManager.getValue(use(playerUUID, namespace), namespace, key));
+    }
+
+    @Override
+    public void putInt(String playerUUID, String namespace, String key, int value) {
+        put(playerUUID, namespace, key, value);
+    }
+
+    @Override
+    public void putLong(String playerUUID, String namespace, String key, long value) {
+        put(playerUUID, namespace, key, value);
+    }
+
+    @Override
+    public void putDouble(String playerUUID, String namespace, String key, double value) {
+        put(playerUUID, namespace, key, value);
+    }
+
+    @Override
+    public void putBytes(String playerUUID, String namespace, String key, byte[] value) {
+        put(playerUUID, namespace, key, value != null ? value.clone() : null);
+    }
+
+    @Override
+    public void put(String playerUUID, String namespace, String key, Object value) {
+        tracked(() -> playerDataManager.storeValue(use(playerUUID, namespace), namespace, key, value));
+    }
+
+    @Override
+    public long increment(String playerUUID, String namespace, String key, long delta) {
+        return tracked(() -> playerDataManager.increment(use(playerUUID, namespace), namespace, key, delta));
+    }
+
+    @Override
+    public boolean compareAndSet(String playerUUID, String namespace, String key, Object expected, Object newValue) {
+        return tracked(() -> playerDataManager.compareAndSet(use(playerUUID, namespace), namespace, key, expected, newValue));
+    }
+
+    @Override
+    public Object getAndUpdate(String playerUUID, String namespace, String key, UnaryOperator<Object> update) {
+        return tracked(() -> playerDataManager.getAndUpdate(use(playerUUID, namespace), namespace, key, update));
+    }
+
+    @Override
+    public void registerCodec(DataCodec<?> codec) {
+        playerDataManager.registerCodec(codec);
+    }
+
+    @Override
+    public Map<String, String> getPlayerDataBulk(String playerUUID, String namespace) {
+        return tracked(() -> playerDataManager.getNamespaceData(use(playerUUID, namespace), namespace));
+    }
+
+    @Override
+    public CompletableFuture<Void> storePlayerDataAsync(String playerUUID, String namespace, String key, String value) {
+        return CompletableFuture.runAsync(() -> storePlayerData(playerUUID, namespace, key, value), dataExecutor);
+    }
+
+    @Override
+    public CompletableFuture<String> getPlayerDataAsync(String playerUUID, String namespace, String key) {
+        return CompletableFuture.supplyAsync(() -> getPlayerData(playerUUID, namespace, key), dataExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Void> storePlayerDataBatchAsync(String playerUUID, String namespace, Map<String, String> values) {
+        Map<String, String> copy = new HashMap<>(values);
+        return CompletableFuture.runAsync(() -> tracked(() ->
+                playerDataManager.storeDataBatch(use(playerUUID, namespace), namespace, copy)), dataExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> getPlayerDataBatchAsync(String playerUUID, String namespace, Collection<String> keys) {
+        List<String> copy = List.copyOf(keys);
+        return CompletableFuture.supplyAsync(() -> tracked(() ->
+                playerDataManager.getDataBatch(use(playerUUID, namespace), namespace, copy)), dataExecutor);
+    }
+
+    @Override
+    public Stream<PlayerDataEntry> scanPlayerData(String namespace, String key) {
+        return scanPlayerData(namespace, key, 500);
+    }
+
+    @Override
+    public Stream<PlayerDataEntry> scanPlayerData(String namespace, String key, int pageSize) {
+        namespaceUsage.accept(namespace);
+        return playerDataManager.scanKey(namespace, key, pageSize);
+    }
+
+    @Override
+    public CompletableFuture<Void> declareRanking(String namespace, String key) {
+        return CompletableFuture.runAsync(() -> tracked(() -> {
+            playerDataManager.declareRanking(namespace, key);
+        }), dataExecutor);
+    }
+
+    @Override
+    public List<RankedEntry> getTopPlayers(String namespace, String key, int count) {
+        return getRankRange(namespace, key, 1, count);
+    }
+
+    @Override
+    public List<RankedEntry> getRankRange(String namespace, String key, int fromRank, int count) {
+        namespaceUsage.accept(namespace);
+        RankingIndex ranking = playerDataManager.getRanking(namespace, key);
+        return ranking != null ? ranking.range(fromRank, count) : List.of();
+    }
+
+    @Override
+    public int getRank(String playerUUID, String namespace, String key) {
+        RankingIndex ranking = playerDataManager.getRanking(namespace, key);
+        return ranking != null ? ranking.rankOf(use(playerUUID, namespace)) : -1;
+    }
+
+    @Override
+    public Executor mainThreadExecutor() {
+        return mainThreadExecutor;
+    }
+
+    @Override
+    public TaskScheduler getScheduler() {
+        if (scheduler == null) {
+            throw new IllegalStateException("Task scheduler not available");
+        }
+        return scheduler;
+    }
+
+    @Override
+    public EventBus getEventBus() {
+        if (eventBus == null) {
+            throw new IllegalStateException("Event bus not available");
+        }
+        return eventBus;
     }
 
     @Override
     public void clearPlayerCache(UUID playerId) {
-        GhastCore.getInstance().getPlayerDataManager().clearCache(playerId);
+        playerDataManager.clearCache(playerId);
     }
 
     @Override
@@ -35,11 +272,26 @@ public class GhastCoreAPIImpl implements GhastCoreAPI {
         return GhastCore.getInstance().getExtensionManager().getExtensions();
     }
 
+    @Override
+    public void logDebug(String message) {
+        logger.debug(message);
+    }
+
+    @Override
+    public void logDebug(Supplier<String> message) {
+        logger.debug(message);
+    }
+
     @Override
     public void logInfo(String message) {
         logger.info(message);
     }
 
+    @Override
+    public void logInfo(Supplier<String> message) {
+        logger.info(message);
+    }
+
     @Override
     public void logWarning(String message) {
         logger.warning(message);
@@ -49,4 +301,9 @@ public class GhastCoreAPIImpl implements GhastCoreAPI {
     public void logSevere(String message) {
         logger.severe(message);
     }
+
+    @Override
+    public void logSevere(String message, Throwable thrown) {
+        logger.severe(message, thrown);
+    }
 }
\ No newline at end of file
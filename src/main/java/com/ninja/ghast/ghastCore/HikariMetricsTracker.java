@@ -0,0 +1,41 @@
+package com.ninja.ghast.ghastCore;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Feeds Hikari's connection wait, usage and timeout events into the metrics registry, labelled by pool name.
+ */
+public class HikariMetricsTracker implements IMetricsTracker {
+    private final LatencyHistogram acquire;
+    private final LatencyHistogram usage;
+    private final LongAdder timeouts;
+
+    private HikariMetricsTracker(MetricsRegistry metrics, String poolName) {
+        this.acquire = metrics.timer("pool_acquire", poolName, "");
+        this.usage = metrics.timer("pool_usage", poolName, "");
+        this.timeouts = metrics.counter("pool_timeouts", poolName, "");
+    }
+
+    public static MetricsTrackerFactory factory(MetricsRegistry metrics) {
+        return (String poolName, PoolStats poolStats) -> new HikariMetricsTracker(metrics, poolName);
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquire.record(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usage.record(elapsedBorrowedMillis * 1_000_000L);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+}
@@ -0,0 +1,106 @@
+package com.ninja.ghast.ghastCore;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram over nanoseconds. Buckets are powers of two split into four
+ * sub-buckets, so any recorded value is reported within about 25% using a fixed 2 KB array.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 256;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(index(nanos));
+        count.increment();
+        sum.add(nanos);
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Adds another histogram's recorded values to this one, e.g. to combine namespaces for display.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long value = other.buckets.get(i);
+            if (value != 0) {
+                buckets.addAndGet(i, value);
+            }
+        }
+        count.add(other.getCount());
+        sum.add(other.getSumNanos());
+        long otherMax = other.getMaxNanos();
+        long currentMax = max.get();
+        while (otherMax > currentMax && !max.compareAndSet(currentMax, otherMax)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Returns an estimate of the given quantile (0..1) in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long quantile(double quantile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(lowerBound(i + 1) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int index(long value) {
+        if (value < 4) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) ((value >>> (exponent - 2)) & 3);
+        return (exponent - 1) * 4 + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < 4) {
+            return index;
+        }
+        int exponent = index / 4 + 1;
+        if (exponent > 62) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (4 + index % 4) << (exponent - 2);
+    }
+}
@@ -0,0 +1,159 @@
+package com.ninja.ghast.ghastCore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands log records to a background thread through a bounded ring buffer, so logging does not
+ * wait on console or file I/O. What happens when the buffer is full is up to the overflow
+ * policy; errors are never dropped and are written on the calling thread instead.
+ */
+public class LogAppender {
+    public enum Overflow {
+        /** Wait for space. */
+        BLOCK,
+        /** Discard the new record. */
+        DROP,
+        /** Discard the oldest buffered record to make room. */
+        DROP_OLDEST,
+        /** Write the record on the calling thread. */
+        SYNC;
+
+        public static Overflow parse(String name) {
+            try {
+                return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return DROP;
+            }
+        }
+    }
+
+    record Entry(Logger logger, Level level, String prefix, String pattern, Object[] args, Throwable thrown) {
+        void write() {
+            String message = prefix + (args == null ? pattern : LogManager.format(pattern, args));
+            if (thrown != null) {
+                logger.log(level, message, thrown);
+            } else {
+                logger.log(level, message);
+            }
+        }
+    }
+
+    private final ArrayBlockingQueue<Entry> buffer;
+    private final Overflow overflow;
+    private final Logger logger;
+    private final LongAdder dropped = new LongAdder();
+    private Thread thread;
+    private volatile boolean running;
+
+    public LogAppender(int capacity, Overflow overflow, Logger logger) {
+        this.buffer = new ArrayBlockingQueue<>(Math.max(16, capacity));
+        this.overflow = overflow;
+        this.logger = logger;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "GhastCore-Log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the background thread after writing everything still buffered.
+     */
+    public void close() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drain(new ArrayList<>());
+    }
+
+    void append(Entry entry) {
+        if (!running) {
+            entry.write();
+            return;
+        }
+        if (buffer.offer(entry)) {
+            return;
+        }
+        if (entry.level().intValue() >= Level.SEVERE.intValue()) {
+            entry.write();
+            return;
+        }
+        switch (overflow) {
+            case BLOCK -> {
+                try {
+                    buffer.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!buffer.offer(entry)) {
+                    if (buffer.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+            }
+            case SYNC -> entry.write();
+            default -> dropped.increment();
+        }
+    }
+
+    public int size() {
+        return buffer.size();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(256);
+        long reportedDropped = 0;
+        while (running) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            buffer.drainTo(batch, 255);
+            write(batch);
+            long droppedNow = dropped.sum();
+            if (droppedNow > reportedDropped) {
+                logger.warning("Dropped " + (droppedNow - reportedDropped) + " log messages, the log buffer was full");
+                reportedDropped = droppedNow;
+            }
+        }
+    }
+
+    private void drain(List<Entry> batch) {
+        buffer.drainTo(batch);
+        write(batch);
+    }
+
+    private void write(List<Entry> batch) {
+        for (Entry entry : batch) {
+            try {
+                entry.write();
+            } catch (RuntimeException e) {
+                logger.warning("Failed to write a log message: " + e);
+            }
+        }
+        batch.clear();
+    }
+}
@@ -2,31 +2,154 @@ package com.ninja.ghast.ghastCore;
 
 import org.bukkit.configuration.file.FileConfiguration;
 
-import java.util.logging.Level;
+import java.util.Locale;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
+/**
+ * Level-filtered logging. The level is resolved once from {@code logging.level}, and messages
+ * passed as a {@link Supplier} or as a pattern with {@code {}} placeholders are only built when
+ * their level is enabled; patterns are formatted on the appender thread. Without an appender
+ * records are written on the calling thread.
+ */
 public class LogManager {
+    public enum Level {
+        ERROR(java.util.logging.Level.SEVERE),
+        WARN(java.util.logging.Level.WARNING),
+        INFO(java.util.logging.Level.INFO),
+        // Plugin loggers drop FINE by default, so debug output goes out at INFO
+        DEBUG(java.util.logging.Level.INFO);
+
+        private final java.util.logging.Level julLevel;
+
+        Level(java.util.logging.Level julLevel) {
+            this.julLevel = julLevel;
+        }
+
+        public static Level parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return INFO;
+            }
+        }
+    }
+
     private final Logger logger;
-    private final String logLevel;
+    private final LogAppender appender;
+    private final LogManager root;
+    private final String prefix;
+    private volatile Level level;
 
     public LogManager(Logger logger, FileConfiguration config) {
+        this(logger, config, null);
+    }
+
+    public LogManager(Logger logger, FileConfiguration config, LogAppender appender) {
+        this.logger = logger;
+        this.appender = appender;
+        this.root = this;
+        this.prefix = "";
+        this.level = Level.parse(config.getString("logging.level", "INFO"));
+    }
+
+    private LogManager(LogManager root, Logger logger, String prefix) {
         this.logger = logger;
-        this.logLevel = config.getString("logging.level", "INFO").toUpperCase();
+        this.appender = root.appender;
+        this.root = root;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Returns a logger writing through {@code logger} (or this logger with a name prefix if null),
+     * sharing this logger's level and appender.
+     */
+    public LogManager forExtension(String name, Logger logger) {
+        return logger != null ? new LogManager(root, logger, "") : new LogManager(root, this.logger, "[" + name + "] ");
+    }
+
+    public void setLevel(Level level) {
+        root.level = level;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() <= root.level.ordinal();
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String message) {
+        log(Level.DEBUG, message, null, null);
+    }
+
+    public void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, message.get(), null, null);
+        }
+    }
+
+    public void debug(String pattern, Object... args) {
+        log(Level.DEBUG, pattern, args, null);
     }
 
     public void info(String message) {
-        if (logLevel.equals("INFO") || logLevel.equals("DEBUG")) {
-            logger.info(message);
+        log(Level.INFO, message, null, null);
+    }
+
+    public void info(Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, message.get(), null, null);
         }
     }
 
+    public void info(String pattern, Object... args) {
+        log(Level.INFO, pattern, args, null);
+    }
+
     public void warning(String message) {
-        if (logLevel.equals("WARN") || logLevel.equals("INFO") || logLevel.equals("DEBUG")) {
-            logger.warning(message);
-        }
+        log(Level.WARN, message, null, null);
+    }
+
+    public void warning(String pattern, Object... args) {
+        log(Level.WARN, pattern, args, null);
     }
 
     public void severe(String message) {
-        logger.severe(message);
+        log(Level.ERROR, message, null, null);
+    }
+
+    public void severe(String message, Throwable thrown) {
+        log(Level.ERROR, message, null, thrown);
+    }
+
+    private void log(Level level, String pattern, Object[] args, Throwable thrown) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        LogAppender.Entry entry = new LogAppender.Entry(logger, level.julLevel, prefix, pattern, args, thrown);
+        if (appender != null) {
+            appender.append(entry);
+        } else {
+            entry.write();
+        }
+    }
+
+    /**
+     * Replaces each {@code {}} in the pattern with the next argument.
+     */
+    static String format(String pattern, Object[] args) {
+        StringBuilder result = new StringBuilder(pattern.length() + 16 * args.length);
+        int start = 0;
+        for (Object arg : args) {
+            int placeholder = pattern.indexOf("{}", start);
+            if (placeholder < 0) {
+                break;
+            }
+            result.append(pattern, start, placeholder).append(arg);
+            start = placeholder + 2;
+        }
+        return result.append(pattern, start, pattern.length()).toString();
     }
-}
\ No newline at end of file
+}
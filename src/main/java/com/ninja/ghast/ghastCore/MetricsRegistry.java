@@ -0,0 +1,67 @@
+package com.ninja.ghast.ghastCore;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters, latency histograms and gauges, labelled by operation and namespace.
+ * Lookups go through nested maps so recording a value does not allocate.
+ */
+public class MetricsRegistry {
+    private final Map<String, Map<String, Map<String, LongAdder>>> counters = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Map<String, LatencyHistogram>>> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public LongAdder counter(String name, String op, String namespace) {
+        return counters.computeIfAbsent(name, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(op, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(namespace, k -> new LongAdder());
+    }
+
+    public LatencyHistogram timer(String name, String op, String namespace) {
+        return timers.computeIfAbsent(name, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(op, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(namespace, k -> new LatencyHistogram());
+    }
+
+    public void recordTime(String name, String op, String namespace, long startNanos) {
+        timer(name, op, namespace).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Registers a gauge, replacing any earlier gauge of the same name (e.g. after a pool reload).
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public Map<String, Map<String, Map<String, LongAdder>>> getCounters() {
+        return counters;
+    }
+
+    public Map<String, Map<String, Map<String, LatencyHistogram>>> getTimers() {
+        return timers;
+    }
+
+    public Map<String, LongSupplier> getGauges() {
+        return gauges;
+    }
+
+    public long counterTotal(String name, String op) {
+        Map<String, Map<String, LongAdder>> byOp = counters.get(name);
+        if (byOp == null) {
+            return 0;
+        }
+        long total = 0;
+        for (Map.Entry<String, Map<String, LongAdder>> entry : byOp.entrySet()) {
+            if (op == null || op.equals(entry.getKey())) {
+                for (LongAdder adder : entry.getValue().values()) {
+                    total += adder.sum();
+                }
+            }
+        }
+        return total;
+    }
+}
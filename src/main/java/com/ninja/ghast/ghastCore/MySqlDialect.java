@@ -0,0 +1,128 @@
+package com.ninja.ghast.ghastCore;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class MySqlDialect implements SqlDialect {
+    // VALUES(col) in ON DUPLICATE KEY UPDATE is deprecated from MySQL 8.0.20, which warns on every upsert
+    private boolean rowAlias;
+
+    @Override
+    public String name() {
+        return "mysql";
+    }
+
+    /**
+     * Uses the row alias form on MySQL 8.0.19 and later. MariaDB (which reports a 5.5.5- prefixed
+     * version) and MySQL-compatible stand-ins keep VALUES(col).
+     */
+    @Override
+    public void inspect(DatabaseMetaData metaData) throws SQLException {
+        int major = metaData.getDatabaseMajorVersion();
+        int minor = metaData.getDatabaseMinorVersion();
+        String version = metaData.getDatabaseProductVersion();
+        int patch = 0;
+        String[] parts = version.split("[^0-9]+");
+        if (parts.length > 2) {
+            try {
+                patch = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                // Leave the patch level at 0
+            }
+        }
+        rowAlias = metaData.getDatabaseProductName().equalsIgnoreCase("MySQL")
+                && !version.toLowerCase().contains("mariadb")
+                && (major > 8 || (major == 8 && (minor > 0 || patch >= 19)));
+    }
+
+    @Override
+    public void configure(HikariConfig hikariConfig, FileConfiguration config, File dataFolder) {
+        String jdbcUrl = config.getString("database.mysql.jdbc-url", "");
+        if (!jdbcUrl.isEmpty()) {
+            // Full URL override, e.g. for a local test server or a MySQL-compatible stand-in
+            hikariConfig.setJdbcUrl(jdbcUrl);
+            hikariConfig.setUsername(config.getString("database.mysql.username"));
+            hikariConfig.setPassword(config.getString("database.mysql.password"));
+            if (jdbcUrl.startsWith("jdbc:mysql:")) {
+                applyDriverOptions(hikariConfig);
+            }
+            return;
+        }
+
+        String host = config.getString("database.mysql.host");
+        String port = config.getString("database.mysql.port");
+        String database = config.getString("database.mysql.database");
+        String username = config.getString("database.mysql.username");
+        String password = config.getString("database.mysql.password");
+
+        if (host == null) throw new IllegalArgumentException("MySQL host not configured");
+        if (port == null) throw new IllegalArgumentException("MySQL port not configured");
+        if (database == null) throw new IllegalArgumentException("MySQL database not configured");
+        if (username == null) throw new IllegalArgumentException("MySQL username not configured");
+        if (password == null) throw new IllegalArgumentException("MySQL password not configured");
+
+        hikariConfig.setJdbcUrl("jdbc:mysql://" + host + ":" + port + "/" + database +
+                "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC");
+        hikariConfig.setUsername(username);
+        hikariConfig.setPassword(password);
+        applyDriverOptions(hikariConfig);
+    }
+
+    private void applyDriverOptions(HikariConfig hikariConfig) {
+        // Send batches as multi-row statements and keep prepared statements on the server
+        hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+        hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+        hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+        hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+        hikariConfig.addDataSourceProperty("useLocalSessionState", "true");
+        hikariConfig.addDataSourceProperty("cacheServerConfiguration", "true");
+        hikariConfig.addDataSourceProperty("elideSetAutoCommits", "true");
+        hikariConfig.addDataSourceProperty("maintainTimeStats", "false");
+    }
+
+    @Override
+    public String uuidColumnType() {
+        return "BINARY(16)";
+    }
+
+    @Override
+    public String valueColumnType() {
+        return "MEDIUMBLOB";
+    }
+
+    @Override
+    public String nameTableDefinition() {
+        return "CREATE TABLE IF NOT EXISTS data_names (id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                "name VARCHAR(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL UNIQUE)";
+    }
+
+    @Override
+    public String changeLogDefinition() {
+        return "CREATE TABLE IF NOT EXISTS data_changes (id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                "player_uuid BINARY(16) NOT NULL, namespace_id INT NOT NULL, key_id INT NOT NULL, " +
+                "node_id BIGINT NOT NULL, changed_at BIGINT NOT NULL)";
+    }
+
+    @Override
+    public String upsert(String table, List<String> columns, List<String> keyColumns, List<String> updateColumns, int rows) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.valuesClause(columns.size(), rows) +
+                (rowAlias ? " AS new" : "") +
+                " ON DUPLICATE KEY UPDATE " + updateColumns.stream()
+                .map(column -> column + (rowAlias ? " = new." + column : " = VALUES(" + column + ")"))
+                .collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public String insertIgnore(String table, List<String> columns, int rows) {
+        return "INSERT IGNORE INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.valuesClause(columns.size(), rows);
+    }
+}
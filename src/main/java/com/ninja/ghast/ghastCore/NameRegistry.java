@@ -0,0 +1,103 @@
+package com.ninja.ghast.ghastCore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns namespace and key names as small integer ids stored in the data_names table.
+ * Ids never change once assigned, so both directions are cached for the lifetime of the pool.
+ */
+public class NameRegistry {
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final String insertIgnoreSql;
+
+    public NameRegistry(SqlDialect dialect) {
+        this.insertIgnoreSql = dialect.insertIgnore("data_names", List.of("name"), 1);
+    }
+
+    public void loadAll(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id, name FROM data_names");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                remember(rs.getString("name"), rs.getInt("id"));
+            }
+        }
+    }
+
+    /**
+     * Returns the id of a name, assigning a new one if the name has never been stored.
+     * Call this outside of a transaction so a rollback cannot undo an id that is already cached.
+     */
+    public int idOf(Connection conn, String name) throws SQLException {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        int found = lookup(conn, name);
+        if (found != UNKNOWN) {
+            return found;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(insertIgnoreSql)) {
+            stmt.setString(1, name);
+            stmt.executeUpdate();
+        }
+        found = lookup(conn, name);
+        if (found == UNKNOWN) {
+            throw new SQLException("Failed to assign an id to name: " + name);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the id of a name, or {@link #UNKNOWN} if it has never been stored. Never writes.
+     */
+    public int findId(Connection conn, String name) throws SQLException {
+        Integer id = ids.get(name);
+        return id != null ? id : lookup(conn, name);
+    }
+
+    public String nameOf(Connection conn, int id) throws SQLException {
+        String name = names.get(id);
+        if (name != null) {
+            return name;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT name FROM data_names WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    name = rs.getString("name");
+                    remember(name, id);
+                    return name;
+                }
+            }
+        }
+        throw new SQLException("Unknown name id: " + id);
+    }
+
+    private int lookup(Connection conn, String name) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM data_names WHERE name = ?")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    int id = rs.getInt("id");
+                    remember(name, id);
+                    return id;
+                }
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private void remember(String name, int id) {
+        ids.put(name, id);
+        names.put(id, name);
+    }
+}
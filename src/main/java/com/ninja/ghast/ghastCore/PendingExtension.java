@@ -0,0 +1,131 @@
+package com.ninja.ghast.ghastCore;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A lazily loaded extension that has not been used yet. Its plugin.yml commands are registered
+ * as stubs, and listeners wait for the events named under {@code ghastcore-triggers}; the first
+ * stub command or trigger event loads the extension. A stub command is re-dispatched to the real
+ * command once loaded, while the triggering event itself is not seen by the extension.
+ */
+public class PendingExtension implements Listener {
+    private final GhastCore plugin;
+    private final ExtensionCandidate candidate;
+    private final List<Command> stubCommands = new ArrayList<>();
+    private final AtomicBoolean triggered = new AtomicBoolean(false);
+
+    public PendingExtension(GhastCore plugin, ExtensionCandidate candidate) {
+        this.plugin = plugin;
+        this.candidate = candidate;
+    }
+
+    public ExtensionCandidate getCandidate() {
+        return candidate;
+    }
+
+    public ExtensionInfo getInfo() {
+        List<String> authors = candidate.description().getAuthors();
+        return new ExtensionInfo(candidate.name(), authors.isEmpty() ? "Unknown" : String.join(", ", authors),
+                candidate.description().getVersion(), candidate.name().toLowerCase());
+    }
+
+    /**
+     * Registers the stub commands and trigger listeners. {@code loader} loads the extension on the
+     * main thread and returns whether it succeeded.
+     */
+    @SuppressWarnings("unchecked")
+    public void install(BooleanSupplier loader) {
+        CommandMap commandMap = plugin.getServer().getCommandMap();
+        for (Map.Entry<String, Map<String, Object>> entry : candidate.description().getCommands().entrySet()) {
+            StubCommand command = new StubCommand(entry.getKey(), entry.getValue(), loader);
+            commandMap.register(candidate.name().toLowerCase(), command);
+            stubCommands.add(command);
+        }
+
+        for (String trigger : candidate.triggers()) {
+            Class<?> eventClass;
+            try {
+                eventClass = Class.forName(trigger);
+            } catch (ClassNotFoundException e) {
+                plugin.getLogger().warning("Extension " + candidate.name() + " declares unknown trigger event " + trigger);
+                continue;
+            }
+            if (!Event.class.isAssignableFrom(eventClass)) {
+                plugin.getLogger().warning("Extension " + candidate.name() + " trigger " + trigger + " is not an event");
+                continue;
+            }
+            try {
+                plugin.getServer().getPluginManager().registerEvent((Class<? extends Event>) eventClass, this,
+                        EventPriority.MONITOR, (listener, event) -> {
+                            if (eventClass.isInstance(event) && triggered.compareAndSet(false, true)) {
+                                plugin.getServer().getScheduler().runTask(plugin, loader::getAsBoolean);
+                            }
+                        }, plugin);
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Cannot listen for trigger " + trigger + " of " + candidate.name() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public void uninstall() {
+        HandlerList.unregisterAll(this);
+        CommandMap commandMap = plugin.getServer().getCommandMap();
+        for (Command command : stubCommands) {
+            command.unregister(commandMap);
+            commandMap.getKnownCommands().values().removeIf(known -> known == command);
+        }
+        stubCommands.clear();
+    }
+
+    private final class StubCommand extends Command {
+        private final BooleanSupplier loader;
+
+        @SuppressWarnings("unchecked")
+        StubCommand(String name, Map<String, Object> spec, BooleanSupplier loader) {
+            super(name);
+            this.loader = loader;
+            if (spec != null) {
+                if (spec.get("description") != null) {
+                    setDescription(spec.get("description").toString());
+                }
+                if (spec.get("usage") != null) {
+                    setUsage(spec.get("usage").toString());
+                }
+                if (spec.get("permission") != null) {
+                    setPermission(spec.get("permission").toString());
+                }
+                Object aliases = spec.get("aliases");
+                if (aliases instanceof List<?> list) {
+                    setAliases((List<String>) list);
+                } else if (aliases != null) {
+                    setAliases(List.of(aliases.toString()));
+                }
+            }
+        }
+
+        @Override
+        public boolean execute(@NotNull CommandSender sender, @NotNull String label, @NotNull String[] args) {
+            if (!testPermission(sender)) {
+                return true;
+            }
+            if (!loader.getAsBoolean()) {
+                sender.sendMessage("§cExtension " + candidate.name() + " failed to load");
+                return true;
+            }
+            return plugin.getServer().dispatchCommand(sender, args.length == 0 ? label : label + " " + String.join(" ", args));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.ninja.ghast.ghastCore;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded player data cache with per-entry expiry. Missing keys are cached as
+ * {@link Optional#empty()} for a shorter time so repeated misses skip the database.
+ * A namespace marked as loaded holds every stored key of that player, so keys absent
+ * from it are known to be missing; evicting any of its keys clears the mark. An empty
+ * namespace gets a marker entry instead, so its mark expires with the negative TTL.
+ */
+public class PlayerDataCache {
+    // Cache node, DataKey, Optional and key string headers; player and namespace strings are mostly shared
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+    // Key of the entry standing in for an empty loaded namespace
+    private static final String EMPTY_NAMESPACE_KEY = "\0";
+
+    private final Cache<DataKey, Optional<Object>> cache;
+    private final Map<String, Set<DataKey>> playerKeys;
+    // Loaded namespaces by player, so a player's marks are dropped in one step
+    private final Map<String, Set<String>> loadedNamespaces;
+
+    public PlayerDataCache(long maxEntries, long ttlSeconds, long negativeTtlSeconds) {
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        long negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.playerKeys = new ConcurrentHashMap<>();
+        this.loadedNamespaces = new ConcurrentHashMap<>();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<DataKey, Optional<Object>>() {
+                    @Override
+                    public long expireAfterCreate(DataKey key, Optional<Object> value, long currentTime) {
+                        return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(DataKey key, Optional<Object> value, long currentTime, long currentDuration) {
+                        return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(DataKey key, Optional<Object> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .evictionListener((DataKey key, Optional<Object> value, RemovalCause cause) -> {
+                    if (key != null) {
+                        unmark(key.playerUUID(), key.namespace());
+                        untrack(key);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the cached value for a key, or null if the key is not cached.
+     */
+    public Optional<Object> getIfPresent(DataKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    public Optional<Object> get(DataKey key, Function<DataKey, Optional<Object>> loader) {
+        return cache.get(key, k -> {
+            Optional<Object> loaded = loader.apply(k);
+            track(k);
+            return loaded;
+        });
+    }
+
+    public void put(DataKey key, Object value) {
+        track(key);
+        cache.put(key, Optional.ofNullable(value));
+    }
+
+    public void invalidate(DataKey key) {
+        unmark(key.playerUUID(), key.namespace());
+        cache.invalidate(key);
+        untrack(key);
+    }
+
+    /**
+     * Replaces a cached value only if it is still {@code expected}, so a newer local write is never overwritten.
+     */
+    public boolean replace(DataKey key, Optional<Object> expected, Object value) {
+        return cache.asMap().replace(key, expected, Optional.ofNullable(value));
+    }
+
+    public void invalidateAll() {
+        loadedNamespaces.clear();
+        cache.invalidateAll();
+        playerKeys.clear();
+    }
+
+    public void invalidatePlayer(String playerUUID) {
+        Set<DataKey> keys = playerKeys.remove(playerUUID);
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+        loadedNamespaces.remove(playerUUID);
+    }
+
+    /**
+     * Caches a complete namespace of a player and marks it as loaded.
+     */
+    public void putNamespace(String playerUUID, String namespace, Map<String, ?> values) {
+        values.forEach((key, value) -> put(new DataKey(playerUUID, namespace, key), value));
+        if (values.isEmpty()) {
+            put(new DataKey(playerUUID, namespace, EMPTY_NAMESPACE_KEY), null);
+        }
+        loadedNamespaces.compute(playerUUID, (k, namespaces) -> {
+            Set<String> marked = namespaces != null ? namespaces : ConcurrentHashMap.newKeySet();
+            marked.add(namespace);
+            return marked;
+        });
+    }
+
+    public boolean isNamespaceLoaded(String playerUUID, String namespace) {
+        Set<String> namespaces = loadedNamespaces.get(playerUUID);
+        return namespaces != null && namespaces.contains(namespace);
+    }
+
+    /**
+     * Returns the cached values of a loaded namespace, or null if it is not (or no longer) fully cached.
+     */
+    public Map<String, Object> getNamespace(String playerUUID, String namespace) {
+        if (!isNamespaceLoaded(playerUUID, namespace)) {
+            return null;
+        }
+        Map<String, Object> result = new HashMap<>();
+        Set<DataKey> keys = playerKeys.get(playerUUID);
+        if (keys != null) {
+            for (DataKey key : keys) {
+                if (key.namespace().equals(namespace)) {
+                    Optional<Object> value = cache.getIfPresent(key);
+                    if (value == null) {
+                        return null;
+                    }
+                    value.ifPresent(v -> result.put(key.key(), v));
+                }
+            }
+        }
+        return isNamespaceLoaded(playerUUID, namespace) ? result : null;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Estimates the heap held by cached entries of each namespace. Walks the whole cache, so keep it off hot paths.
+     */
+    public Map<String, Long> footprintByNamespace() {
+        Map<String, Long> result = new HashMap<>();
+        cache.asMap().forEach((key, value) -> result.merge(key.namespace(),
+                ENTRY_OVERHEAD_BYTES + key.key().length() + DataValues.heapSize(value.orElse(null)), Long::sum));
+        return result;
+    }
+
+    private void unmark(String playerUUID, String namespace) {
+        loadedNamespaces.computeIfPresent(playerUUID, (k, namespaces) -> {
+            namespaces.remove(namespace);
+            return namespaces.isEmpty() ? null : namespaces;
+        });
+    }
+
+    private void track(DataKey key) {
+        playerKeys.computeIfAbsent(key.playerUUID(), k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private void untrack(DataKey key) {
+        playerKeys.computeIfPresent(key.playerUUID(), (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
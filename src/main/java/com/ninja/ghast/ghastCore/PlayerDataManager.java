@@ -1,9 +1,30 @@
 package com.ninja.ghast.ghastCore;
 
+import com.ninja.ghast.ghastCore.api.DataCodec;
+import com.ninja.ghast.ghastCore.api.PlayerDataEntry;
+
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public interface PlayerDataManager {
     String getData(UUID playerId, String namespace, String key);
     void storeData(UUID playerId, String namespace, String key, String value);
+    Object getValue(UUID playerId, String namespace, String key);
+    <T> T getValue(UUID playerId, String namespace, String key, Class<T> type);
+    void storeValue(UUID playerId, String namespace, String key, Object value);
+    long increment(UUID playerId, String namespace, String key, long delta);
+    boolean compareAndSet(UUID playerId, String namespace, String key, Object expected, Object newValue);
+    Object getAndUpdate(UUID playerId, String namespace, String key, UnaryOperator<Object> update);
+    Map<String, String> getDataBatch(UUID playerId, String namespace, Collection<String> keys);
+    void storeDataBatch(UUID playerId, String namespace, Map<String, String> values);
+    Map<String, String> getNamespaceData(UUID playerId, String namespace);
+    Stream<PlayerDataEntry> scanKey(String namespace, String key, int pageSize);
+    RankingIndex declareRanking(String namespace, String key);
+    RankingIndex getRanking(String namespace, String key);
+    void registerCodec(DataCodec<?> codec);
+    void preload(UUID playerId);
     void clearCache(UUID playerId);
-}
\ No newline at end of file
+}
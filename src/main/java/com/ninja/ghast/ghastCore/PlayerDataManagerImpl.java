@@ -1,72 +1,376 @@
 package com.ninja.ghast.ghastCore;
 
+import com.ninja.ghast.ghastCore.api.DataCodec;
+import com.ninja.ghast.ghastCore.api.PlayerDataEntry;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.logging.Logger;
 
 public class PlayerDataManagerImpl implements PlayerDataManager, Listener {
-    private final DatabaseManager dbManager;
+    // Read-modify-write operations on keys hashing to the same stripe run one at a time
+    private static final int LOCK_STRIPES = 256;
+
+    private final Supplier<DatabaseManager> databaseManager;
+    private final Logger logger;
+    private final MetricsRegistry metrics;
     private final boolean cachingEnabled;
-    private final int cacheTTL;
-    private final Map<UUID, Map<String, Map<String, String>>> cache;
-    private final Map<UUID, Long> cacheTimestamps;
+    private final PlayerDataCache cache;
+    private final boolean preloadEnabled;
+    private final List<String> preloadNamespaces;
+    private final CodecRegistry codecs = new CodecRegistry();
+    private final Rankings rankings = new Rankings();
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    public PlayerDataManagerImpl(GhastCore plugin, boolean cachingEnabled, PlayerDataCache cache) {
+        // Looked up on each call so a /gcore reload swapping the pool is picked up
+        this(plugin::getDatabaseManager, plugin.getConfig(), plugin.getLogger(), plugin.getMetrics(), cachingEnabled, cache);
+    }
 
-    public PlayerDataManagerImpl(DatabaseManager dbManager, boolean cachingEnabled, int cacheTTL) {
-        this.dbManager = dbManager;
+    public PlayerDataManagerImpl(Supplier<DatabaseManager> databaseManager, FileConfiguration config, Logger logger,
+                                 MetricsRegistry metrics, boolean cachingEnabled, PlayerDataCache cache) {
+        this.databaseManager = databaseManager;
+        this.logger = logger;
+        this.metrics = metrics;
         this.cachingEnabled = cachingEnabled;
-        this.cacheTTL = cacheTTL;
-        this.cache = new ConcurrentHashMap<>();
-        this.cacheTimestamps = new ConcurrentHashMap<>();
+        this.cache = cache;
+        this.preloadEnabled = config.getBoolean("preload.enabled", true);
+        this.preloadNamespaces = config.getStringList("preload.namespaces");
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    private DatabaseManager db() {
+        return databaseManager.get();
     }
 
     @Override
     public String getData(UUID playerId, String namespace, String key) {
-        if (cachingEnabled) {
-            Map<String, Map<String, String>> playerCache = cache.get(playerId);
-            if (playerCache != null) {
-                Map<String, String> namespaceCache = playerCache.get(namespace);
-                if (namespaceCache != null && namespaceCache.containsKey(key)) {
-                    Long timestamp = cacheTimestamps.get(playerId);
-                    if (timestamp != null && (System.currentTimeMillis() - timestamp) < cacheTTL * 1000L) {
-                        return namespaceCache.get(key);
-                    }
+        return DataValues.asString(getValue(playerId, namespace, key));
+    }
+
+    @Override
+    public void storeData(UUID playerId, String namespace, String key, String value) {
+        storeValue(playerId, namespace, key, value);
+    }
+
+    @Override
+    public Object getValue(UUID playerId, String namespace, String key) {
+        String uuid = playerId.toString();
+        if (!cachingEnabled) {
+            return codecs.resolve(db().getPlayerData(uuid, namespace, key));
+        }
+        metrics.counter("cache_requests", "get", namespace).increment();
+        Object value = cache.get(new DataKey(uuid, namespace, key), k -> {
+            if (cache.isNamespaceLoaded(uuid, namespace)) {
+                return Optional.empty();
+            }
+            metrics.counter("cache_misses", "get", namespace).increment();
+            return Optional.ofNullable(codecs.resolve(db().getPlayerData(uuid, namespace, key)));
+        }).orElse(null);
+        // Values cached before their codec was registered are decoded on each read
+        return codecs.resolve(value);
+    }
+
+    @Override
+    public <T> T getValue(UUID playerId, String namespace, String key, Class<T> type) {
+        return codecs.convert(getValue(playerId, namespace, key), type);
+    }
+
+    /**
+     * Stores a value under the key's stripe lock, so a concurrent update cannot slip its buffered
+     * write in between this store reaching the database and the cache.
+     */
+    @Override
+    public void storeValue(UUID playerId, String namespace, String key, Object value) {
+        String uuid = playerId.toString();
+        ReentrantLock lock = stripeOf(playerId, namespace, key);
+        lock.lock();
+        try {
+            boolean stored = db().storePlayerData(uuid, namespace, key, codecs.toStorable(value));
+            if (stored) {
+                rankings.update(playerId, namespace, key, value);
+            }
+            if (stored && cachingEnabled) {
+                cache.put(new DataKey(uuid, namespace, key), value);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long increment(UUID playerId, String namespace, String key, long delta) {
+        return (Long) update(playerId, namespace, key, value -> DataValues.asLong(value, 0) + delta, true);
+    }
+
+    @Override
+    public boolean compareAndSet(UUID playerId, String namespace, String key, Object expected, Object newValue) {
+        boolean[] swapped = new boolean[1];
+        update(playerId, namespace, key, value -> {
+            swapped[0] = DataValues.sameValue(value, expected);
+            return swapped[0] ? newValue : value;
+        }, false);
+        return swapped[0];
+    }
+
+    @Override
+    public Object getAndUpdate(UUID playerId, String namespace, String key, UnaryOperator<Object> update) {
+        return update(playerId, namespace, key, update, false);
+    }
+
+    /**
+     * Applies {@code update} to the current value under the key's stripe lock and returns the new
+     * or the previous value. The read is usually served by the cache or the write buffer, and the
+     * result is buffered for the next flush, so repeated updates of a key cost one row write per
+     * flush. Updates are atomic on this server only.
+     */
+    private Object update(UUID playerId, String namespace, String key, UnaryOperator<Object> update, boolean returnNew) {
+        String uuid = playerId.toString();
+        ReentrantLock lock = stripeOf(playerId, namespace, key);
+        lock.lock();
+        try {
+            Object previous = getValue(playerId, namespace, key);
+            Object next = update.apply(previous);
+            if (next != previous) {
+                db().storePlayerDataDeferred(uuid, namespace, key, codecs.toStorable(next));
+                rankings.update(playerId, namespace, key, next);
+                if (cachingEnabled) {
+                    cache.put(new DataKey(uuid, namespace, key), next);
                 }
             }
+            return returnNew ? next : previous;
+        } finally {
+            lock.unlock();
         }
-        String value = dbManager.getPlayerData(playerId.toString(), namespace, key);
-        if (cachingEnabled && value != null) {
-            cache.computeIfAbsent(playerId, k -> new HashMap<>())
-                    .computeIfAbsent(namespace, k -> new HashMap<>())
-                    .put(key, value);
-            cacheTimestamps.put(playerId, System.currentTimeMillis());
+    }
+
+    private int stripeIndex(UUID playerId, String namespace, String key) {
+        int hash = (playerId.hashCode() * 31 + namespace.hashCode()) * 31 + key.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    private ReentrantLock stripeOf(UUID playerId, String namespace, String key) {
+        return stripes[stripeIndex(playerId, namespace, key)];
+    }
+
+    @Override
+    public Map<String, String> getDataBatch(UUID playerId, String namespace, Collection<String> keys) {
+        String uuid = playerId.toString();
+        if (!cachingEnabled) {
+            return asStrings(db().getPlayerDataBatch(uuid, namespace, keys));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            Optional<Object> cached = cache.getIfPresent(new DataKey(uuid, namespace, key));
+            if (cached == null) {
+                missing.add(key);
+            } else {
+                cached.ifPresent(value -> result.put(key, value));
+            }
+        }
+        metrics.counter("cache_requests", "get_batch", namespace).add(keys.size());
+        if (!missing.isEmpty()) {
+            metrics.counter("cache_misses", "get_batch", namespace).add(missing.size());
+            Map<String, Object> loaded = db().getPlayerDataBatch(uuid, namespace, missing);
+            for (String key : missing) {
+                Object value = codecs.resolve(loaded.get(key));
+                cache.put(new DataKey(uuid, namespace, key), value);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
         }
-        return value;
+        return asStrings(result);
     }
 
     @Override
-    public void storeData(UUID playerId, String namespace, String key, String value) {
-        dbManager.storePlayerData(playerId.toString(), namespace, key, value);
+    public void storeDataBatch(UUID playerId, String namespace, Map<String, String> values) {
+        String uuid = playerId.toString();
+        // Stripes are taken in index order so two batches cannot deadlock
+        int[] indexes = values.keySet().stream().mapToInt(key -> stripeIndex(playerId, namespace, key))
+                .distinct().sorted().toArray();
+        for (int index : indexes) {
+            stripes[index].lock();
+        }
+        try {
+            boolean stored = db().storePlayerDataBatch(uuid, namespace, values);
+            if (stored) {
+                rankings.update(playerId, namespace, values);
+            }
+            if (stored && cachingEnabled) {
+                values.forEach((key, value) -> cache.put(new DataKey(uuid, namespace, key), value));
+            }
+        } finally {
+            for (int i = indexes.length - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, String> getNamespaceData(UUID playerId, String namespace) {
+        String uuid = playerId.toString();
         if (cachingEnabled) {
-            cache.computeIfAbsent(playerId, k -> new HashMap<>())
-                    .computeIfAbsent(namespace, k -> new HashMap<>())
-                    .put(key, value);
-            cacheTimestamps.put(playerId, System.currentTimeMillis());
+            metrics.counter("cache_requests", "namespace", namespace).increment();
+            Map<String, Object> cached = cache.getNamespace(uuid, namespace);
+            if (cached != null) {
+                return asStrings(cached);
+            }
+            metrics.counter("cache_misses", "namespace", namespace).increment();
+        }
+
+        Map<String, Object> values = db().getAllPlayerData(uuid, List.of(namespace))
+                .getOrDefault(namespace, new HashMap<>());
+        values.replaceAll((key, value) -> codecs.resolve(value));
+        if (cachingEnabled) {
+            cache.putNamespace(uuid, namespace, values);
+        }
+        return asStrings(values);
+    }
+
+    @Override
+    public Stream<PlayerDataEntry> scanKey(String namespace, String key, int pageSize) {
+        return db().scanKey(namespace, key, pageSize)
+                .map(entry -> entry.value() instanceof CustomValue
+                        ? new PlayerDataEntry(entry.playerId(), namespace, key, codecs.resolve(entry.value()))
+                        : entry);
+    }
+
+    /**
+     * Declares a ranked key, building its index from the database on the calling thread the first
+     * time. Stores made while it is built are kept over the values read.
+     */
+    @Override
+    public RankingIndex declareRanking(String namespace, String key) {
+        RankingIndex created = new RankingIndex();
+        RankingIndex index = rankings.register(namespace, key, created);
+        if (index == created) {
+            load(namespace, key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Reads every declared ranking from the database again, for rows written behind this
+     * server's back such as an import. Stores made meanwhile are kept over the values read.
+     */
+    public void rebuildRankings() {
+        rankings.forEach((namespace, keys) -> keys.forEach((key, index) -> {
+            index.startLoading();
+            load(namespace, key, index);
+        }));
+    }
+
+    private void load(String namespace, String key, RankingIndex index) {
+        long start = System.nanoTime();
+        try (Stream<PlayerDataEntry> entries = db().scanKey(namespace, key, 5000)) {
+            entries.forEach(entry -> {
+                Double score = Rankings.score(entry.value());
+                if (score != null) {
+                    index.load(entry.playerId(), score);
+                }
+            });
+        } finally {
+            index.finishLoading();
+        }
+        logger.info("Built ranking " + namespace + "/" + key + " with " + index.size() + " players in " +
+                (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    @Override
+    public RankingIndex getRanking(String namespace, String key) {
+        return rankings.get(namespace, key);
+    }
+
+    @Override
+    public void registerCodec(DataCodec<?> codec) {
+        codecs.register(codec);
+    }
+
+    private Map<String, String> asStrings(Map<String, Object> values) {
+        Map<String, String> result = new HashMap<>();
+        values.forEach((key, value) -> {
+            String text = DataValues.asString(codecs.resolve(value));
+            if (text != null) {
+                result.put(key, text);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void preload(UUID playerId) {
+        if (!cachingEnabled) {
+            return;
+        }
+        String uuid = playerId.toString();
+        Map<String, Map<String, Object>> data = db().getAllPlayerData(uuid, preloadNamespaces);
+        data.forEach((namespace, values) -> {
+            values.replaceAll((key, value) -> codecs.resolve(value));
+            cache.putNamespace(uuid, namespace, values);
+        });
+        for (String namespace : preloadNamespaces) {
+            if (!data.containsKey(namespace)) {
+                cache.putNamespace(uuid, namespace, Map.of());
+            }
         }
     }
 
     @Override
     public void clearCache(UUID playerId) {
-        cache.remove(playerId);
-        cacheTimestamps.remove(playerId);
+        cache.invalidatePlayer(playerId.toString());
+    }
+
+    public PlayerDataCache getCache() {
+        return cache;
+    }
+
+    public Rankings getRankings() {
+        return rankings;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (!preloadEnabled || event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        try {
+            preload(event.getUniqueId());
+        } catch (IllegalStateException e) {
+            logger.warning("Failed to preload data for " + event.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // A player turned away after pre-login never quits, so what was preloaded is dropped here
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            clearCache(event.getPlayer().getUniqueId());
+        }
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         clearCache(event.getPlayer().getUniqueId());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package com.ninja.ghast.ghastCore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes the metrics registry to a file in the Prometheus text format, for node_exporter's
+ * textfile collector or any scraper that can read a file. The file is replaced atomically.
+ */
+public class PrometheusExporter {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final MetricsRegistry metrics;
+    private final File target;
+
+    public PrometheusExporter(MetricsRegistry metrics, File target) {
+        this.metrics = metrics;
+        this.target = target;
+    }
+
+    public void export() throws IOException {
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        Files.writeString(temp.toPath(), render(), StandardCharsets.UTF_8);
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public String render() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Map<String, Map<String, LongAdder>>> metric : metrics.getCounters().entrySet()) {
+            String name = "ghastcore_" + metric.getKey() + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            metric.getValue().forEach((op, byNamespace) -> byNamespace.forEach((namespace, adder) ->
+                    out.append(name).append(labels(op, namespace, null)).append(' ').append(adder.sum()).append('\n')));
+        }
+
+        for (Map.Entry<String, Map<String, Map<String, LatencyHistogram>>> metric : metrics.getTimers().entrySet()) {
+            String name = "ghastcore_" + metric.getKey() + "_seconds";
+            out.append("# TYPE ").append(name).append(" summary\n");
+            metric.getValue().forEach((op, byNamespace) -> byNamespace.forEach((namespace, histogram) -> {
+                for (double quantile : QUANTILES) {
+                    out.append(name).append(labels(op, namespace, quantile)).append(' ')
+                            .append(seconds(histogram.quantile(quantile))).append('\n');
+                }
+                out.append(name).append("_sum").append(labels(op, namespace, null)).append(' ')
+                        .append(seconds(histogram.getSumNanos())).append('\n');
+                out.append(name).append("_count").append(labels(op, namespace, null)).append(' ')
+                        .append(histogram.getCount()).append('\n');
+            }));
+        }
+
+        for (Map.Entry<String, LongSupplier> gauge : metrics.getGauges().entrySet()) {
+            String name = "ghastcore_" + gauge.getKey();
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(gauge.getValue().getAsLong()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String labels(String op, String namespace, Double quantile) {
+        StringBuilder labels = new StringBuilder();
+        if (!op.isEmpty()) {
+            labels.append("op=\"").append(escape(op)).append('"');
+        }
+        if (!namespace.isEmpty()) {
+            if (!labels.isEmpty()) labels.append(',');
+            labels.append("namespace=\"").append(escape(namespace)).append('"');
+        }
+        if (quantile != null) {
+            if (!labels.isEmpty()) labels.append(',');
+            labels.append("quantile=\"").append(quantile).append('"');
+        }
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,240 @@
+package com.ninja.ghast.ghastCore;
+
+import com.ninja.ghast.ghastCore.api.RankedEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Players ordered by the numeric value of one key, highest first. The order is a treap whose
+ * nodes know their subtree size, so top-N, rank-of-player and rank ranges are all O(log n)
+ * plus the entries returned. Ties are broken by UUID so ranks are stable.
+ */
+public class RankingIndex {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Double> scores = new HashMap<>();
+    private Set<UUID> updatedWhileLoading = new HashSet<>();
+    private volatile boolean loaded;
+    private Node root;
+
+    /**
+     * Sets a player's score, or removes the player if {@code score} is null or not a number.
+     */
+    public void update(UUID player, Double score) {
+        lock.writeLock().lock();
+        try {
+            if (updatedWhileLoading != null) {
+                updatedWhileLoading.add(player);
+            }
+            set(player, score);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a score read from the database while the index is built, unless the player was updated since.
+     */
+    void load(UUID player, double score) {
+        lock.writeLock().lock();
+        try {
+            if (updatedWhileLoading == null || !updatedWhileLoading.contains(player)) {
+                set(player, score);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts reading the scores from the database again, keeping the current ones meanwhile.
+     */
+    void startLoading() {
+        lock.writeLock().lock();
+        try {
+            if (updatedWhileLoading == null) {
+                updatedWhileLoading = new HashSet<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void finishLoading() {
+        lock.writeLock().lock();
+        try {
+            updatedWhileLoading = null;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public List<RankedEntry> top(int count) {
+        return range(1, count);
+    }
+
+    /**
+     * Returns up to {@code count} entries starting at the 1-based rank {@code fromRank}.
+     */
+    public List<RankedEntry> range(int fromRank, int count) {
+        lock.readLock().lock();
+        try {
+            List<RankedEntry> result = new ArrayList<>(Math.max(0, Math.min(count, size(root) - fromRank + 1)));
+            collect(root, Math.max(0, fromRank - 1), Math.max(0, fromRank - 1) + count, 0, result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the 1-based rank of a player, or -1 if the player has no score.
+     */
+    public int rankOf(UUID player) {
+        lock.readLock().lock();
+        try {
+            Double score = scores.get(player);
+            if (score == null) {
+                return -1;
+            }
+            int before = 0;
+            Node node = root;
+            while (node != null) {
+                int cmp = compare(score, player, node);
+                if (cmp == 0) {
+                    return before + size(node.left) + 1;
+                }
+                if (cmp < 0) {
+                    node = node.left;
+                } else {
+                    before += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Double scoreOf(UUID player) {
+        lock.readLock().lock();
+        try {
+            return scores.get(player);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void set(UUID player, Double score) {
+        Double old = score == null || score.isNaN() ? scores.remove(player) : scores.put(player, score);
+        if (old != null) {
+            Node[] lower = split(root, old, player, false);
+            Node[] upper = split(lower[1], old, player, true);
+            root = merge(lower[0], upper[1]);
+        }
+        if (score != null && !score.isNaN()) {
+            Node[] parts = split(root, score, player, false);
+            root = merge(merge(parts[0], new Node(score, player)), parts[1]);
+        }
+    }
+
+    private void collect(Node node, int from, int to, int offset, List<RankedEntry> result) {
+        if (node == null || offset >= to || offset + node.size <= from) {
+            return;
+        }
+        collect(node.left, from, to, offset, result);
+        int position = offset + size(node.left);
+        if (position >= from && position < to) {
+            result.add(new RankedEntry(node.player, node.score, position + 1));
+        }
+        collect(node.right, from, to, position + 1, result);
+    }
+
+    /**
+     * Splits into the nodes ordered before (score, player) and the rest; with {@code inclusive}
+     * the node equal to it goes to the first part.
+     */
+    private static Node[] split(Node node, double score, UUID player, boolean inclusive) {
+        if (node == null) {
+            return new Node[2];
+        }
+        int cmp = compare(score, player, node);
+        if (cmp > 0 || (inclusive && cmp == 0)) {
+            Node[] parts = split(node.right, score, player, inclusive);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        }
+        Node[] parts = split(node.left, score, player, inclusive);
+        node.left = parts[1];
+        node.update();
+        return new Node[]{parts[0], node};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    // Highest score first, then by UUID
+    private static int compare(double score, UUID player, Node node) {
+        int cmp = Double.compare(node.score, score);
+        return cmp != 0 ? cmp : player.compareTo(node.player);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+        private final double score;
+        private final UUID player;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        Node(double score, UUID player) {
+            this.score = score;
+            this.player = player;
+        }
+
+        void update() {
+            size = 1 + RankingIndex.size(left) + RankingIndex.size(right);
+        }
+    }
+}
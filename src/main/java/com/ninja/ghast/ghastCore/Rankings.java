@@ -0,0 +1,57 @@
+package com.ninja.ghast.ghastCore;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * The declared rankings, looked up by namespace first so a write to an unranked namespace costs one map lookup.
+ */
+public class Rankings {
+    private final Map<String, Map<String, RankingIndex>> byNamespace = new ConcurrentHashMap<>();
+
+    /**
+     * Registers {@code index} for a key unless one is already registered, and returns the registered one.
+     */
+    public RankingIndex register(String namespace, String key, RankingIndex index) {
+        RankingIndex existing = byNamespace.computeIfAbsent(namespace, k -> new ConcurrentHashMap<>()).putIfAbsent(key, index);
+        return existing != null ? existing : index;
+    }
+
+    public RankingIndex get(String namespace, String key) {
+        Map<String, RankingIndex> keys = byNamespace.get(namespace);
+        return keys != null ? keys.get(key) : null;
+    }
+
+    /**
+     * Calls {@code action} with each namespace that has rankings and its indexes by key.
+     */
+    public void forEach(BiConsumer<String, Map<String, RankingIndex>> action) {
+        byNamespace.forEach((namespace, keys) -> action.accept(namespace, Collections.unmodifiableMap(keys)));
+    }
+
+    public void update(UUID player, String namespace, String key, Object value) {
+        RankingIndex index = get(namespace, key);
+        if (index != null) {
+            index.update(player, score(value));
+        }
+    }
+
+    public void update(UUID player, String namespace, Map<String, ?> values) {
+        Map<String, RankingIndex> keys = byNamespace.get(namespace);
+        if (keys != null) {
+            keys.forEach((key, index) -> {
+                if (values.containsKey(key)) {
+                    index.update(player, score(values.get(key)));
+                }
+            });
+        }
+    }
+
+    static Double score(Object value) {
+        double score = DataValues.asDouble(value, Double.NaN);
+        return Double.isNaN(score) ? null : score;
+    }
+}
@@ -0,0 +1,242 @@
+package com.ninja.ghast.ghastCore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the player data tables and upgrades older layouts in place. Version 1 is the
+ * original string-keyed player_data table; version 2 stores binary UUIDs and interned
+ * namespace/key ids; version 3 stores values in the tagged binary form of {@link DataValues}.
+ * Rows are copied in small transactions so no lock is held for long, and an interrupted
+ * migration resumes on the next start.
+ */
+public class SchemaMigrator {
+    public static final int CURRENT_VERSION = 3;
+    private static final int CHUNK_SIZE = 1000;
+
+    private final DatabaseManager db;
+    private final NameRegistry names;
+    private final LogManager logger;
+    private final SqlDialect dialect;
+
+    public SchemaMigrator(DatabaseManager db, NameRegistry names, LogManager logger, SqlDialect dialect) {
+        this.db = db;
+        this.names = names;
+        this.logger = logger;
+        this.dialect = dialect;
+    }
+
+    public void migrate() throws SQLException {
+        try (Connection conn = db.getWriteConnection()) {
+            execute(conn, "CREATE TABLE IF NOT EXISTS ghast_schema (id INT NOT NULL PRIMARY KEY, version INT NOT NULL)");
+            execute(conn, dialect.nameTableDefinition());
+            execute(conn, dialect.changeLogDefinition());
+
+            int version = readVersion(conn);
+            if (version < CURRENT_VERSION) {
+                if (tableExists(conn, "player_data") && !columnExists(conn, "player_data", "namespace_id")) {
+                    renameForMigration(conn, "player_data_v1");
+                } else if (tableExists(conn, "player_data") && !hasBinaryValues(conn)) {
+                    renameForMigration(conn, "player_data_v2");
+                }
+                createDataTable(conn);
+                // A v1 table left behind by a finished upgrade to version 2 holds stale rows, so only copy it from below 2
+                if (tableExists(conn, "player_data_v2")) {
+                    migrateFromV2(conn);
+                }
+                if (version < 2 && tableExists(conn, "player_data_v1")) {
+                    migrateFromV1(conn);
+                }
+                writeVersion(conn, CURRENT_VERSION);
+            } else {
+                createDataTable(conn);
+            }
+            createIndex(conn, "idx_player_data_key", "player_data", "namespace_id, key_id, player_uuid");
+            // Pruning finds the oldest change to keep through it
+            createIndex(conn, "idx_data_changes_time", "data_changes", "changed_at");
+
+            names.loadAll(conn);
+        }
+    }
+
+    private void renameForMigration(Connection conn, String oldTable) throws SQLException {
+        if (tableExists(conn, oldTable)) {
+            throw new SQLException("Both player_data and " + oldTable + " use an old layout, resolve manually");
+        }
+        logger.info("Upgrading player_data to schema version " + CURRENT_VERSION);
+        execute(conn, "ALTER TABLE player_data RENAME TO " + oldTable);
+    }
+
+    private void createDataTable(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS player_data (" +
+                "player_uuid " + dialect.uuidColumnType() + " NOT NULL," +
+                "namespace_id INT NOT NULL," +
+                "key_id INT NOT NULL," +
+                "value " + dialect.valueColumnType() + "," +
+                "PRIMARY KEY (player_uuid, namespace_id, key_id)" +
+                ")");
+    }
+
+    /**
+     * Creates a secondary index unless it exists. On a large table this takes a while, so it is logged.
+     */
+    private void createIndex(Connection conn, String index, String table, String columns) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+        logger.info("Creating index {} on {}", index, table);
+        execute(conn, "CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+    }
+
+    private void migrateFromV1(Connection conn) throws SQLException {
+        String select = "SELECT player_uuid, namespace, key_name, value FROM player_data_v1 " +
+                "WHERE (player_uuid, namespace, key_name) > (?, ?, ?) " +
+                "ORDER BY player_uuid, namespace, key_name LIMIT " + CHUNK_SIZE;
+        copyRows(conn, "player_data_v1", select, new Object[]{"", "", ""}, row -> {
+            byte[] uuid = DatabaseManager.uuidToBytes((String) row[0]);
+            if (uuid == null) {
+                return null;
+            }
+            return new Object[]{uuid, names.idOf(conn, (String) row[1]), names.idOf(conn, (String) row[2]),
+                    DataValues.encode(row[3])};
+        });
+    }
+
+    private void migrateFromV2(Connection conn) throws SQLException {
+        String select = "SELECT player_uuid, namespace_id, key_id, value FROM player_data_v2 " +
+                "WHERE (player_uuid, namespace_id, key_id) > (?, ?, ?) " +
+                "ORDER BY player_uuid, namespace_id, key_id LIMIT " + CHUNK_SIZE;
+        copyRows(conn, "player_data_v2", select, new Object[]{new byte[0], Integer.MIN_VALUE, Integer.MIN_VALUE},
+                row -> new Object[]{row[0], row[1], row[2], DataValues.encode(row[3])});
+    }
+
+    /**
+     * Copies {@code oldTable} into player_data chunk by chunk, paging on the first three selected columns.
+     * The mapper turns a selected row into the inserted row, or null to skip it; it runs before the
+     * chunk's transaction so ids resolved there cannot be orphaned by a rollback.
+     */
+    private void copyRows(Connection conn, String oldTable, String select, Object[] cursor, RowMapper mapper) throws SQLException {
+        String insert = dialect.insertIgnore("player_data", DatabaseManager.DATA_COLUMNS, 1);
+        long copied = 0;
+        long skipped = 0;
+        while (true) {
+            List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+            try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                for (int i = 0; i < cursor.length; i++) {
+                    stmt.setObject(i + 1, cursor[i]);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        // Both old layouts store the value as text
+                        rows.add(new Object[]{rs.getObject(1), rs.getObject(2), rs.getObject(3), rs.getString(4)});
+                    }
+                }
+            }
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> mapped = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                Object[] insertRow = mapper.map(row);
+                if (insertRow == null) {
+                    skipped++;
+                } else {
+                    mapped.add(insertRow);
+                }
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(insert)) {
+                for (Object[] row : mapped) {
+                    stmt.setBytes(1, (byte[]) row[0]);
+                    stmt.setInt(2, ((Number) row[1]).intValue());
+                    stmt.setInt(3, ((Number) row[2]).intValue());
+                    stmt.setBytes(4, (byte[]) row[3]);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            Object[] last = rows.get(rows.size() - 1);
+            cursor = new Object[]{last[0], last[1], last[2]};
+            copied += mapped.size();
+            if (copied % (CHUNK_SIZE * 100L) < mapped.size()) {
+                logger.info("Migrated {} player data rows...", copied);
+            }
+        }
+
+        if (skipped > 0) {
+            logger.warning("Skipped " + skipped + " player data rows with an invalid UUID during migration");
+        }
+        logger.info("Migrated {} player data rows to schema version {}. The old rows are kept in {} and can be dropped once verified.",
+                copied, CURRENT_VERSION, oldTable);
+    }
+
+    private interface RowMapper {
+        Object[] map(Object[] row) throws SQLException;
+    }
+
+    private int readVersion(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT version FROM ghast_schema WHERE id = 1");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void writeVersion(Connection conn, int version) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement("UPDATE ghast_schema SET version = ? WHERE id = 1")) {
+            update.setInt(1, version);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO ghast_schema (id, version) VALUES (1, ?)")) {
+            insert.setInt(1, version);
+            insert.executeUpdate();
+        }
+    }
+
+    private boolean tableExists(Connection conn, String table) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getTables(conn.getCatalog(), null, table, null)) {
+            return rs.next();
+        }
+    }
+
+    private boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    private boolean hasBinaryValues(Connection conn) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, "player_data", "value")) {
+            if (!rs.next()) {
+                return false;
+            }
+            String type = rs.getString("TYPE_NAME").toUpperCase();
+            return type.contains("BLOB") || type.contains("BINARY");
+        }
+    }
+
+    private void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ninja.ghast.ghastCore;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL that differs between the supported backends, chosen from {@code database.type}.
+ */
+public interface SqlDialect {
+
+    static SqlDialect forType(String type) {
+        return type.equalsIgnoreCase("mysql") ? new MySqlDialect() : new SqliteDialect();
+    }
+
+    String name();
+
+    /**
+     * Adapts the generated SQL to the server version once the pool is up. Call before building statements.
+     */
+    default void inspect(DatabaseMetaData metaData) throws SQLException {
+    }
+
+    /**
+     * Sets the JDBC URL, credentials and driver options on the pool configuration.
+     */
+    void configure(HikariConfig hikariConfig, FileConfiguration config, File dataFolder);
+
+    String uuidColumnType();
+
+    String valueColumnType();
+
+    String nameTableDefinition();
+
+    /**
+     * Defines the change log polled by other servers sharing the database, with an increasing id per change.
+     */
+    String changeLogDefinition();
+
+    /**
+     * Builds an insert of {@code rows} rows that updates {@code updateColumns} when the primary key already exists.
+     */
+    String upsert(String table, List<String> columns, List<String> keyColumns, List<String> updateColumns, int rows);
+
+    /**
+     * Builds an insert of {@code rows} rows that silently skips rows whose key already exists.
+     */
+    String insertIgnore(String table, List<String> columns, int rows);
+
+    static String valuesClause(int columns, int rows) {
+        String row = "(" + String.join(", ", Collections.nCopies(columns, "?")) + ")";
+        return String.join(", ", Collections.nCopies(rows, row));
+    }
+}
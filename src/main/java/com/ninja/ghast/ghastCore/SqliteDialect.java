@@ -0,0 +1,93 @@
+package com.ninja.ghast.ghastCore;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SqliteDialect implements SqlDialect {
+
+    @Override
+    public String name() {
+        return "sqlite";
+    }
+
+    @Override
+    public void configure(HikariConfig hikariConfig, FileConfiguration config, File dataFolder) {
+        hikariConfig.setJdbcUrl("jdbc:sqlite:" + dataFolder + "/data.db");
+        applyPragmas(hikariConfig, config);
+    }
+
+    public boolean isSingleWriter(FileConfiguration config) {
+        return config.getBoolean("database.sqlite.single-writer", true);
+    }
+
+    /**
+     * Configures the read pool used in single-writer mode. Its connections reject writes.
+     */
+    public void configureReader(HikariConfig hikariConfig, FileConfiguration config, File dataFolder) {
+        configure(hikariConfig, config, dataFolder);
+        hikariConfig.setPoolName("GhastCore-SQLiteRead");
+        hikariConfig.setConnectionInitSql("PRAGMA query_only = 1");
+    }
+
+    /**
+     * Configures the one-connection pool owned by the writer thread. WAL mode is stored in
+     * the database file, so setting it here also covers the read connections.
+     */
+    public void configureWriter(HikariConfig hikariConfig, FileConfiguration config, File dataFolder) {
+        configure(hikariConfig, config, dataFolder);
+        hikariConfig.setPoolName("GhastCore-SQLiteWrite");
+        hikariConfig.setMaximumPoolSize(1);
+        hikariConfig.setMinimumIdle(1);
+        hikariConfig.addDataSourceProperty("journal_mode", "WAL");
+        hikariConfig.addDataSourceProperty("synchronous", "NORMAL");
+    }
+
+    private void applyPragmas(HikariConfig hikariConfig, FileConfiguration config) {
+        // Negative cache_size is in KiB rather than pages
+        hikariConfig.addDataSourceProperty("cache_size", String.valueOf(-config.getInt("database.sqlite.cache-size-kb", 16384)));
+        hikariConfig.addDataSourceProperty("mmap_size", String.valueOf(config.getLong("database.sqlite.mmap-size-mb", 256) * 1024 * 1024));
+        hikariConfig.addDataSourceProperty("busy_timeout", "5000");
+        hikariConfig.addDataSourceProperty("temp_store", "MEMORY");
+    }
+
+    @Override
+    public String uuidColumnType() {
+        return "BLOB";
+    }
+
+    @Override
+    public String valueColumnType() {
+        return "BLOB";
+    }
+
+    @Override
+    public String nameTableDefinition() {
+        return "CREATE TABLE IF NOT EXISTS data_names (id INTEGER PRIMARY KEY AUTOINCREMENT, name VARCHAR(100) NOT NULL UNIQUE)";
+    }
+
+    @Override
+    public String changeLogDefinition() {
+        return "CREATE TABLE IF NOT EXISTS data_changes (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "player_uuid BLOB NOT NULL, namespace_id INT NOT NULL, key_id INT NOT NULL, " +
+                "node_id BIGINT NOT NULL, changed_at BIGINT NOT NULL)";
+    }
+
+    @Override
+    public String upsert(String table, List<String> columns, List<String> keyColumns, List<String> updateColumns, int rows) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.valuesClause(columns.size(), rows) +
+                " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " + updateColumns.stream()
+                .map(column -> column + " = excluded." + column)
+                .collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public String insertIgnore(String table, List<String> columns, int rows) {
+        return "INSERT OR IGNORE INTO " + table + " (" + String.join(", ", columns) + ") VALUES " +
+                SqlDialect.valuesClause(columns.size(), rows);
+    }
+}
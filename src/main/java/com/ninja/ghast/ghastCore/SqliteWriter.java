@@ -0,0 +1,150 @@
+package com.ninja.ghast.ghastCore;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every SQLite write on one thread and one connection, committing queued writes
+ * together. SQLite allows a single writer at a time, so this replaces lock contention
+ * between pooled connections with a queue.
+ */
+public class SqliteWriter {
+
+    @FunctionalInterface
+    public interface SqlWork {
+        void run(Connection conn) throws SQLException;
+    }
+
+    private record WriteTask(SqlWork prepare, SqlWork work, CompletableFuture<Void> future) {
+    }
+
+    private final HikariDataSource dataSource;
+    private final LogManager logger;
+    private final int groupSize;
+    private final BlockingQueue<WriteTask> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public SqliteWriter(HikariDataSource dataSource, LogManager logger, int groupSize) {
+        this.dataSource = dataSource;
+        this.logger = logger;
+        this.groupSize = Math.max(1, groupSize);
+        this.queue = new LinkedBlockingQueue<>();
+        this.thread = new Thread(this::run, "GhastCore-SQLiteWriter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a write. {@code prepare} runs in auto-commit mode before the group transaction
+     * (for work that must not be rolled back, like assigning name ids); {@code work} runs
+     * inside the transaction. The future completes once the group has been committed.
+     */
+    public CompletableFuture<Void> submit(SqlWork prepare, SqlWork work) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new SQLException("SQLite writer is closed"));
+            return future;
+        }
+        queue.add(new WriteTask(prepare, work, future));
+        return future;
+    }
+
+    /**
+     * Returns the writer's connection for schema setup. Must be closed before queued writes can run.
+     */
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<WriteTask> group = new ArrayList<>(groupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteTask first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, groupSize - 1);
+                commitGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commitGroup(List<WriteTask> group) {
+        List<WriteTask> applied = new ArrayList<>(group.size());
+        try (Connection conn = dataSource.getConnection()) {
+            List<WriteTask> prepared = new ArrayList<>(group.size());
+            for (WriteTask task : group) {
+                try {
+                    task.prepare().run(conn);
+                    prepared.add(task);
+                } catch (SQLException | RuntimeException e) {
+                    task.future().completeExceptionally(e);
+                }
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                for (WriteTask task : prepared) {
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        task.work().run(conn);
+                        conn.releaseSavepoint(savepoint);
+                        applied.add(task);
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback(savepoint);
+                        task.future().completeExceptionally(e);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.severe("SQLite group commit failed: " + e.getMessage());
+            for (WriteTask task : group) {
+                task.future().completeExceptionally(e);
+            }
+            return;
+        }
+        for (WriteTask task : applied) {
+            task.future().complete(null);
+        }
+    }
+
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.severe("Closing SQLite writer with " + queue.size() + " queued writes");
+        }
+        dataSource.close();
+    }
+}
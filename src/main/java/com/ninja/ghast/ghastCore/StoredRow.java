@@ -0,0 +1,12 @@
+package com.ninja.ghast.ghastCore;
+
+/**
+ * One player_data row as stored, with its value still encoded. The name ids belong to the
+ * database the row was read from and are only used to page through it; writes resolve the
+ * names again, and rows not read from a database carry {@link NameRegistry#UNKNOWN}.
+ */
+public record StoredRow(byte[] playerUuid, int namespaceId, int keyId, String namespace, String key, byte[] value) {
+    public StoredRow(byte[] playerUuid, String namespace, String key, byte[] value) {
+        this(playerUuid, NameRegistry.UNKNOWN, NameRegistry.UNKNOWN, namespace, key, value);
+    }
+}
@@ -0,0 +1,373 @@
+package com.ninja.ghast.ghastCore;
+
+import com.ninja.ghast.ghastCore.api.ScheduledTask;
+import com.ninja.ghast.ghastCore.api.TaskScheduler;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks for GhastCore and its extensions. Main-thread tasks wait in one queue that a
+ * Bukkit task drains every tick until the tick budget is used up; what is left carries over to
+ * the next tick. Async tasks run on the shared virtual-thread executor, with a single platform
+ * thread timing the delayed ones. Tasks are grouped by owner, so an owner's tasks can be counted
+ * and cancelled together, and their run time is recorded in the owner's {@link ExtensionStats}.
+ */
+public class TickScheduler {
+    private final ExecutorService async;
+    private final LogManager logger;
+    private final MetricsRegistry metrics;
+    private final long budgetNanos;
+    private final ConcurrentLinkedQueue<Task> ready = new ConcurrentLinkedQueue<>();
+    private final PriorityBlockingQueue<Task> delayed = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Owner> owners = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private BukkitTask tickTask;
+    private volatile long currentTick;
+
+    public TickScheduler(ExecutorService async, LogManager logger, MetricsRegistry metrics, double budgetMillis) {
+        this.async = async;
+        this.logger = logger;
+        this.metrics = metrics;
+        this.budgetNanos = (long) (Math.max(0.1, budgetMillis) * 1_000_000);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "GhastCore-Timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.gauge("scheduler_sync_pending", ready::size);
+        metrics.gauge("scheduler_sync_delayed", delayed::size);
+    }
+
+    public void start(Plugin plugin) {
+        tickTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+    }
+
+    /**
+     * Cancels every task and stops the tick task and the timer. The async executor is left to its owner.
+     */
+    public void close() {
+        if (tickTask != null) {
+            tickTask.cancel();
+        }
+        owners.keySet().forEach(this::cancelAll);
+        timer.shutdownNow();
+    }
+
+    /**
+     * Returns the scheduler of one owner, replacing the tasks of an earlier owner with the same name.
+     * {@code stats} receives the run time of its tasks and may be null.
+     */
+    public TaskScheduler forOwner(String name, ExtensionStats stats) {
+        Owner owner = new Owner(name, stats);
+        Owner previous = owners.put(name.toLowerCase(), owner);
+        if (previous != null) {
+            previous.cancelAll();
+        }
+        return owner;
+    }
+
+    /**
+     * Cancels the tasks of an owner, e.g. when an extension is unloaded.
+     */
+    public void cancelAll(String name) {
+        Owner owner = owners.remove(name.toLowerCase());
+        if (owner != null) {
+            owner.cancelAll();
+        }
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    void tick() {
+        long tick = ++currentTick;
+        Task next;
+        while ((next = delayed.peek()) != null && next.dueTick <= tick) {
+            delayed.poll();
+            ready.add(next);
+        }
+
+        // At least one task runs every tick, so a task longer than the budget cannot stall the queue
+        long start = System.nanoTime();
+        int ran = 0;
+        Task task;
+        while ((task = ready.poll()) != null) {
+            if (task.isCancelled()) {
+                continue;
+            }
+            task.runSync();
+            ran++;
+            if (System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+        }
+        if (ran > 0) {
+            metrics.recordTime("scheduler_tick", "sync", "", start);
+            if (!ready.isEmpty()) {
+                metrics.counter("scheduler_carried_over", "sync", "").increment();
+            }
+        }
+    }
+
+    private final class Owner implements TaskScheduler {
+        private final String name;
+        private final ExtensionStats stats;
+        private final Set<Task> tasks = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        Owner(String name, ExtensionStats stats) {
+            this.name = name;
+            this.stats = stats;
+        }
+
+        @Override
+        public ScheduledTask runSync(Runnable task) {
+            return runSyncTimer(task, 0, 0);
+        }
+
+        @Override
+        public ScheduledTask runSyncLater(Runnable task, long delayTicks) {
+            return runSyncTimer(task, delayTicks, 0);
+        }
+
+        @Override
+        public ScheduledTask runSyncTimer(Runnable task, long delayTicks, long periodTicks) {
+            Task scheduled = new Task(this, task, true, Math.max(0, periodTicks));
+            if (track(scheduled)) {
+                scheduled.queueSync(Math.max(0, delayTicks));
+            }
+            return scheduled;
+        }
+
+        @Override
+        public ScheduledTask runAsync(Runnable task) {
+            return runAsyncTimer(task, 0, 0, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public ScheduledTask runAsyncLater(Runnable task, long delay, TimeUnit unit) {
+            return runAsyncTimer(task, delay, 0, unit);
+        }
+
+        @Override
+        public ScheduledTask runAsyncTimer(Runnable task, long delay, long period, TimeUnit unit) {
+            Task scheduled = new Task(this, task, false, unit.toNanos(Math.max(0, period)));
+            if (track(scheduled)) {
+                scheduled.queueAsync(unit.toNanos(Math.max(0, delay)));
+            }
+            return scheduled;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> supplySync(Supplier<T> supplier) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            link(future, runSync(() -> complete(future, supplier)));
+            return future;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            link(future, runAsync(() -> complete(future, supplier)));
+            return future;
+        }
+
+        @Override
+        public Executor syncExecutor() {
+            return this::runSync;
+        }
+
+        @Override
+        public Executor asyncExecutor() {
+            return this::runAsync;
+        }
+
+        @Override
+        public int pendingTasks() {
+            return tasks.size();
+        }
+
+        @Override
+        public void cancelAll() {
+            closed = true;
+            tasks.forEach(Task::cancel);
+        }
+
+        // Tasks scheduled after the owner was unloaded are cancelled right away
+        private boolean track(Task task) {
+            tasks.add(task);
+            if (closed) {
+                task.cancel();
+                return false;
+            }
+            return true;
+        }
+
+        private <T> void complete(CompletableFuture<T> future, Supplier<T> supplier) {
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void link(CompletableFuture<?> future, ScheduledTask task) {
+            ((Task) task).onCancel = () -> future.cancel(false);
+            if (task.isCancelled()) {
+                future.cancel(false);
+            }
+            future.whenComplete((value, error) -> {
+                if (future.isCancelled()) {
+                    task.cancel();
+                }
+            });
+        }
+    }
+
+    private final class Task implements ScheduledTask, Comparable<Task> {
+        private final Owner owner;
+        private final Runnable body;
+        private final boolean sync;
+        // Ticks for main-thread tasks, nanoseconds for async ones; 0 runs once
+        private final long period;
+        private volatile long dueTick;
+        private volatile long order;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private volatile Future<?> future;
+        private volatile Runnable onCancel;
+
+        Task(Owner owner, Runnable body, boolean sync, long period) {
+            this.owner = owner;
+            this.body = body;
+            this.sync = sync;
+            this.period = period;
+        }
+
+        void queueSync(long delayTicks) {
+            order = sequence.incrementAndGet();
+            if (delayTicks == 0) {
+                ready.add(this);
+            } else {
+                dueTick = currentTick + delayTicks;
+                delayed.add(this);
+            }
+        }
+
+        void queueAsync(long delayNanos) {
+            try {
+                future = delayNanos == 0
+                        ? async.submit(this::runAsync)
+                        : timer.schedule(() -> queueAsync(0), delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // GhastCore is shutting down
+                cancel();
+            }
+        }
+
+        void runSync() {
+            long start = System.nanoTime();
+            run();
+            long nanos = System.nanoTime() - start;
+            if (owner.stats != null) {
+                owner.stats.recordTask(true, nanos);
+            }
+            if (nanos > budgetNanos) {
+                logger.debug("Task of {} used {}ms of the main thread", owner.name, nanos / 1_000_000);
+            }
+            if (period > 0 && !cancelled) {
+                queueSync(period);
+            } else {
+                finish();
+            }
+        }
+
+        private void runAsync() {
+            if (cancelled) {
+                return;
+            }
+            long start = System.nanoTime();
+            run();
+            if (owner.stats != null) {
+                owner.stats.recordTask(false, System.nanoTime() - start);
+            }
+            if (period > 0 && !cancelled) {
+                queueAsync(period);
+            } else {
+                finish();
+            }
+        }
+
+        private void run() {
+            ExtensionStats previous = owner.stats != null ? owner.stats.enter() : null;
+            try {
+                body.run();
+            } catch (Throwable e) {
+                logger.severe("Task of " + owner.name + " failed", e);
+            } finally {
+                if (owner.stats != null) {
+                    ExtensionStats.exit(previous);
+                }
+            }
+        }
+
+        private void finish() {
+            done = true;
+            owner.tasks.remove(this);
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            // Before the interrupt, so a future waiting on this task ends cancelled rather than failed
+            Runnable callback = onCancel;
+            if (callback != null) {
+                callback.run();
+            }
+            if (sync) {
+                // A queued task is skipped when it comes up
+                delayed.remove(this);
+            } else if (future != null) {
+                future.cancel(true);
+            }
+            finish();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int cmp = Long.compare(dueTick, other.dueTick);
+            return cmp != 0 ? cmp : Long.compare(order, other.order);
+        }
+    }
+}
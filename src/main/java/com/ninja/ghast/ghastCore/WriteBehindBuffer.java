@@ -0,0 +1,65 @@
+package com.ninja.ghast.ghastCore;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class WriteBehindBuffer {
+    private final Map<DataKey, Optional<Object>> pending;
+    private final int maxSize;
+
+    public WriteBehindBuffer(int maxSize) {
+        this.pending = new ConcurrentHashMap<>();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Buffers a write, replacing any earlier unflushed value for the same key.
+     * Returns true once the buffer has reached its size limit and should be flushed.
+     */
+    public boolean put(DataKey key, Object value) {
+        pending.put(key, Optional.ofNullable(value));
+        return pending.size() >= maxSize;
+    }
+
+    /**
+     * Returns the buffered value for a key, or null if nothing is buffered for it.
+     */
+    public Optional<Object> get(DataKey key) {
+        return pending.get(key);
+    }
+
+    /**
+     * Returns the buffered entries of one player, optionally limited to the given namespaces.
+     */
+    public Map<DataKey, Optional<Object>> forPlayer(String playerUUID, Collection<String> namespaces) {
+        Map<DataKey, Optional<Object>> result = new HashMap<>();
+        pending.forEach((key, value) -> {
+            if (key.playerUUID().equals(playerUUID) && (namespaces.isEmpty() || namespaces.contains(key.namespace()))) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    public Map<DataKey, Optional<Object>> snapshot() {
+        return new HashMap<>(pending);
+    }
+
+    /**
+     * Drops flushed entries, keeping any key that was written again while the flush ran.
+     */
+    public void confirm(Map<DataKey, Optional<Object>> flushed) {
+        flushed.forEach(pending::remove);
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public int size() {
+        return pending.size();
+    }
+}
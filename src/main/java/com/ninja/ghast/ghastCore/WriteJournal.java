@@ -0,0 +1,231 @@
+package com.ninja.ghast.ghastCore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of buffered writes in a memory-mapped ring file, so writes waiting for a
+ * flush survive the process being killed: the mapped pages belong to the OS, which writes them
+ * out even if the JVM dies. {@link #force} additionally protects them against an OS crash.
+ * <p>
+ * The header holds the offset and sequence number of the oldest unconfirmed record. Records
+ * carry consecutive sequence numbers and a checksum, so recovery reads from the head until the
+ * first record that is torn or left over from an earlier lap of the ring. A journal closed with
+ * nothing left in it is marked clean, and the next open starts over at the configured size.
+ */
+public class WriteJournal implements AutoCloseable {
+    private static final int MAGIC = 0x47484A31;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_HEADER = 16;
+    private static final int WRAP = -1;
+    private static final int MIN_CAPACITY = HEADER_SIZE + 64 * 1024;
+
+    /**
+     * A position in the journal; everything appended before it can be dropped with {@link #truncate}.
+     */
+    public record Mark(int offset, long sequence) {
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int head;
+    private long headSequence;
+    private int tail;
+    private long nextSequence;
+    private volatile boolean dirty;
+
+    public WriteJournal(File file, int capacity) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(24);
+        channel.read(header, 0);
+        // A journal with unconfirmed records keeps its size until it is emptied
+        boolean open = header.getInt(0) == MAGIC && header.getInt(4) >= MIN_CAPACITY;
+        this.capacity = open ? header.getInt(4) : Math.max(MIN_CAPACITY, capacity);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.capacity);
+        if (open) {
+            head = header.getInt(8);
+            headSequence = header.getLong(16);
+        } else {
+            // A random first sequence number keeps records from an earlier life of the file from matching
+            head = HEADER_SIZE;
+            headSequence = ThreadLocalRandom.current().nextLong() >>> 2;
+            writeHeader();
+        }
+        tail = head;
+        nextSequence = headSequence;
+    }
+
+    /**
+     * Reads every unconfirmed record, keeping the latest value per key, and positions the journal
+     * after them. Call once, before the first append.
+     */
+    public synchronized Map<DataKey, Optional<Object>> recover() {
+        Map<DataKey, Optional<Object>> recovered = new HashMap<>();
+        int offset = head;
+        long sequence = headSequence;
+        boolean wrapped = false;
+        while (true) {
+            if (offset + 4 > capacity || buffer.getInt(offset) == WRAP) {
+                if (wrapped || head == HEADER_SIZE) {
+                    break;
+                }
+                wrapped = true;
+                offset = HEADER_SIZE;
+                continue;
+            }
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER + length > capacity || buffer.getLong(offset + 8) != sequence) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + RECORD_HEADER, payload);
+            if (checksum(sequence, payload) != buffer.getInt(offset + 4)) {
+                break;
+            }
+            decode(payload, recovered);
+            offset += RECORD_HEADER + length;
+            sequence++;
+        }
+        tail = offset;
+        nextSequence = sequence;
+        return recovered;
+    }
+
+    /**
+     * Appends a write. Returns false if the journal has no room until older records are truncated.
+     */
+    public boolean append(DataKey key, byte[] uuid, byte[] value) {
+        byte[] payload = encode(key, uuid, value);
+        int size = RECORD_HEADER + payload.length;
+        synchronized (this) {
+            int offset = tail;
+            if (tail >= head) {
+                if (tail + size + 4 > capacity) {
+                    // Not enough room before the end of the file, continue at the start
+                    if (HEADER_SIZE + size >= head) {
+                        return false;
+                    }
+                    buffer.putInt(tail, WRAP);
+                    offset = HEADER_SIZE;
+                }
+            } else if (tail + size >= head) {
+                return false;
+            }
+
+            long sequence = nextSequence++;
+            buffer.put(offset + RECORD_HEADER, payload);
+            buffer.putLong(offset + 8, sequence);
+            buffer.putInt(offset + 4, checksum(sequence, payload));
+            buffer.putInt(offset, payload.length);
+            tail = offset + size;
+            dirty = true;
+            return true;
+        }
+    }
+
+    public synchronized Mark mark() {
+        return new Mark(tail, nextSequence);
+    }
+
+    /**
+     * Drops the records appended before {@code mark}, once the database has confirmed them.
+     */
+    public synchronized void truncate(Mark mark) {
+        if (mark.offset() == head && mark.sequence() == headSequence) {
+            return;
+        }
+        head = mark.offset();
+        headSequence = mark.sequence();
+        writeHeader();
+    }
+
+    /**
+     * Writes the mapped pages to the storage device if anything changed since the last call.
+     */
+    public void force() {
+        if (dirty) {
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    public synchronized int usedBytes() {
+        return tail >= head ? tail - head : capacity - head + tail - HEADER_SIZE;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (head == tail) {
+                buffer.putInt(0, 0);
+                dirty = true;
+            }
+        }
+        force();
+        channel.close();
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, capacity);
+        buffer.putInt(8, head);
+        buffer.putLong(16, headSequence);
+        dirty = true;
+    }
+
+    private static int checksum(long sequence, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        for (int i = 0; i < 8; i++) {
+            crc.update((int) (sequence >>> (i * 8)));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(DataKey key, byte[] uuid, byte[] value) {
+        byte[] namespace = key.namespace().getBytes(StandardCharsets.UTF_8);
+        byte[] name = key.key().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(16 + 2 + namespace.length + 2 + name.length + 4 + (value != null ? value.length : 0));
+        payload.put(uuid)
+                .putShort((short) namespace.length).put(namespace)
+                .putShort((short) name.length).put(name)
+                .putInt(value != null ? value.length : -1);
+        if (value != null) {
+            payload.put(value);
+        }
+        return payload.array();
+    }
+
+    private static void decode(byte[] data, Map<DataKey, Optional<Object>> into) {
+        ByteBuffer payload = ByteBuffer.wrap(data);
+        byte[] uuid = new byte[16];
+        payload.get(uuid);
+        byte[] namespace = new byte[payload.getShort() & 0xFFFF];
+        payload.get(namespace);
+        byte[] name = new byte[payload.getShort() & 0xFFFF];
+        payload.get(name);
+        int valueLength = payload.getInt();
+        byte[] value = null;
+        if (valueLength >= 0) {
+            value = new byte[valueLength];
+            payload.get(value);
+        }
+        into.put(new DataKey(DatabaseManager.uuidFromBytes(uuid), new String(namespace, StandardCharsets.UTF_8),
+                new String(name, StandardCharsets.UTF_8)), Optional.ofNullable(DataValues.decode(value)));
+    }
+}
@@ -0,0 +1,186 @@
+package com.ninja.ghast.ghastCore;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Per-namespace write budgets, so one busy extension cannot hold every pooled connection.
+ * A rate is a token bucket kept as a single theoretical arrival time (GCRA), so admitting a
+ * write costs one CAS on the namespace's own counter. Quotas compare the rows and value bytes
+ * counted by the last {@link #refreshUsage} plus everything admitted since, which overcounts
+ * updates of existing rows until the next refresh.
+ */
+public class WriteLimiter {
+    public enum Action { BLOCK, DROP, MERGE }
+
+    public enum Outcome { WRITE, DROP, MERGE }
+
+    private final FileConfiguration config;
+    private final MetricsRegistry metrics;
+    private final boolean enabled;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+    public WriteLimiter(FileConfiguration config, MetricsRegistry metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.enabled = config.getBoolean("limits.enabled", false);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean hasQuotas() {
+        if (!enabled) {
+            return false;
+        }
+        if (config.getLong("limits.max-rows", 0) > 0 || config.getLong("limits.max-bytes", 0) > 0) {
+            return true;
+        }
+        var overrides = config.getConfigurationSection("limits.namespaces");
+        return overrides != null && overrides.getKeys(false).stream()
+                .map(this::limit)
+                .anyMatch(limit -> limit.maxRows > 0 || limit.maxBytes > 0);
+    }
+
+    /**
+     * Charges a write of {@code rows} rows and {@code bytes} value bytes to a namespace. With the
+     * block action this waits for the budget, so it may sleep the calling thread.
+     *
+     * @throws IllegalStateException if the namespace is over its storage quota, or a blocked write would wait too long
+     */
+    public Outcome admit(String namespace, int rows, long bytes) {
+        if (!enabled) {
+            return Outcome.WRITE;
+        }
+        Limit limit = limit(namespace);
+
+        if ((limit.maxRows > 0 && limit.rows.get() + rows > limit.maxRows)
+                || (limit.maxBytes > 0 && limit.bytes.get() + bytes > limit.maxBytes)) {
+            metrics.counter("writes_limited", "quota", namespace).add(rows);
+            if (limit.action == Action.DROP) {
+                return Outcome.DROP;
+            }
+            throw new IllegalStateException("Storage quota exceeded for namespace " + namespace);
+        }
+
+        if (limit.intervalNanos > 0) {
+            long maxWait = limit.action == Action.BLOCK ? limit.maxBlockNanos : 0;
+            long wait = limit.reserve(rows, System.nanoTime(), maxWait);
+            if (wait < 0) {
+                if (limit.action == Action.BLOCK) {
+                    metrics.counter("writes_limited", "reject", namespace).add(rows);
+                    throw new IllegalStateException("Write rate limit exceeded for namespace " + namespace);
+                }
+                metrics.counter("writes_limited", limit.action == Action.DROP ? "drop" : "merge", namespace).add(rows);
+                return limit.action == Action.DROP ? Outcome.DROP : Outcome.MERGE;
+            }
+            if (wait > 0) {
+                metrics.counter("writes_limited", "block", namespace).add(rows);
+                LockSupport.parkNanos(wait);
+            }
+        }
+
+        limit.rows.addAndGet(rows);
+        limit.bytes.addAndGet(bytes);
+        return Outcome.WRITE;
+    }
+
+    /**
+     * Replaces the counted usage of every namespace with freshly queried totals, as {rows, bytes} per namespace.
+     */
+    public void refreshUsage(Map<String, long[]> usage) {
+        usage.forEach((namespace, totals) -> {
+            Limit limit = limit(namespace);
+            limit.rows.set(totals[0]);
+            limit.bytes.set(totals[1]);
+        });
+        limits.forEach((namespace, limit) -> {
+            if (!usage.containsKey(namespace)) {
+                limit.rows.set(0);
+                limit.bytes.set(0);
+            }
+        });
+    }
+
+    private Limit limit(String namespace) {
+        return limits.computeIfAbsent(namespace, k -> new Limit(
+                setting(namespace, "writes-per-second", 0.0),
+                setting(namespace, "burst", 0.0),
+                action(setting(namespace, "on-exceed", "block")),
+                setting(namespace, "max-block-ms", 1000L),
+                setting(namespace, "max-rows", 0L),
+                setting(namespace, "max-bytes", 0L)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T setting(String namespace, String key, T defaultValue) {
+        Object fallback = config.get("limits." + key, defaultValue);
+        Object value = namespace.isEmpty() ? fallback : config.get("limits.namespaces." + namespace + "." + key, fallback);
+        if (defaultValue instanceof String) {
+            return (T) String.valueOf(value);
+        }
+        if (!(value instanceof Number number)) {
+            return defaultValue;
+        }
+        if (defaultValue instanceof Double) {
+            return (T) Double.valueOf(number.doubleValue());
+        }
+        return (T) Long.valueOf(number.longValue());
+    }
+
+    private static Action action(String name) {
+        try {
+            return Action.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Action.BLOCK;
+        }
+    }
+
+    private static final class Limit {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Action action;
+        private final long maxBlockNanos;
+        private final long maxRows;
+        private final long maxBytes;
+        private final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        Limit(double perSecond, double burst, Action action, long maxBlockMillis, long maxRows, long maxBytes) {
+            this.intervalNanos = perSecond > 0 ? Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond)) : 0;
+            this.burstNanos = (long) (Math.max(burst, 1) * intervalNanos);
+            this.action = action;
+            this.maxBlockNanos = TimeUnit.MILLISECONDS.toNanos(maxBlockMillis);
+            this.maxRows = maxRows;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Reserves {@code permits} writes and returns how long the caller must wait before writing,
+         * or -1 without reserving anything if that would be longer than {@code maxWait}.
+         */
+        long reserve(int permits, long now, long maxWait) {
+            while (true) {
+                long current = arrival.get();
+                long cost = permits * intervalNanos;
+                long next = Math.max(current, now) + cost;
+                // A batch larger than the burst goes through on an idle bucket and is paid off by later writes
+                long wait = Math.max(current, now) - now - Math.max(0, burstNanos - cost);
+                if (wait > maxWait) {
+                    return -1;
+                }
+                if (arrival.compareAndSet(current, next)) {
+                    return Math.max(0, wait);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ninja.ghast.ghastCore.api;
+
+/**
+ * Converts a custom type to and from the bytes stored for a player data value.
+ * Register an instance with {@link GhastCoreAPI#registerCodec(DataCodec)} before storing values of its type.
+ * @param <T> The type handled by this codec.
+ */
+public interface DataCodec<T> {
+    /**
+     * A stable identifier written next to every encoded value. Changing it makes existing values unreadable.
+     * @return The codec id, at most 255 bytes in UTF-8.
+     */
+    String id();
+
+    /**
+     * @return The type handled by this codec.
+     */
+    Class<T> type();
+
+    /**
+     * Encodes a value.
+     * @param value The value to encode, never null.
+     * @return The encoded bytes.
+     */
+    byte[] encode(T value);
+
+    /**
+     * Decodes a value previously produced by {@link #encode(Object)}.
+     * @param data The encoded bytes.
+     * @return The decoded value.
+     */
+    T decode(byte[] data);
+}
@@ -0,0 +1,74 @@
+package com.ninja.ghast.ghastCore.api;
+
+import java.lang.invoke.MethodHandles;
+import java.util.function.Consumer;
+
+/**
+ * Events between extensions, without Bukkit's event system. Any object can be an event, and it
+ * is delivered to the handlers of exactly its class: handlers of a superclass or interface do
+ * not receive it. Sync handlers run on the posting thread before {@link #post} returns; async
+ * handlers run afterwards on GhastCore's async pool. Handlers are removed when their extension
+ * is unloaded.
+ */
+public interface EventBus {
+    /**
+     * A registered handler.
+     */
+    interface Subscription {
+        void unsubscribe();
+    }
+
+    /**
+     * Registers every method of the listener annotated with {@link Subscribe}.
+     * @param listener The listener object.
+     * @throws IllegalArgumentException If an annotated method does not take exactly one parameter.
+     */
+    void register(Object listener);
+
+    /**
+     * Registers every method of the listener annotated with {@link Subscribe}, binding them through
+     * the caller's lookup. Pass {@code MethodHandles.lookup()} from the extension: handlers are then
+     * compiled into direct calls, which {@link #register(Object)} can only do for classes in
+     * GhastCore's own class loader.
+     * @param listener The listener object.
+     * @param lookup A lookup with full privilege access in the listener's class loader.
+     * @throws IllegalArgumentException If an annotated method does not take exactly one parameter.
+     */
+    void register(Object listener, MethodHandles.Lookup lookup);
+
+    /**
+     * Removes the handlers registered from a listener object.
+     * @param listener The listener object.
+     */
+    void unregister(Object listener);
+
+    /**
+     * Registers a handler running on the posting thread.
+     * @param type The event class.
+     * @param handler The handler.
+     * @return The subscription, for removing the handler.
+     */
+    <E> Subscription subscribe(Class<E> type, Consumer<? super E> handler);
+
+    /**
+     * Registers a handler running on the async pool.
+     * @param type The event class.
+     * @param handler The handler.
+     * @return The subscription, for removing the handler.
+     */
+    <E> Subscription subscribeAsync(Class<E> type, Consumer<? super E> handler);
+
+    /**
+     * Delivers an event. Does almost nothing when the event's class has no handlers.
+     * @param event The event.
+     */
+    void post(Object event);
+
+    /**
+     * Tells whether posting an event of this class would reach any handler, so building an
+     * expensive event can be skipped.
+     * @param type The event class.
+     * @return True if the class has handlers.
+     */
+    boolean hasSubscribers(Class<?> type);
+}
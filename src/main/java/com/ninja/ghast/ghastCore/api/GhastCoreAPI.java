@@ -2,8 +2,15 @@ package com.ninja.ghast.ghastCore.api;
 
 import com.ninja.ghast.ghastCore.ExtensionInfo;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 /**
  * The public API for GhastCore, providing access to player data management and logging.
@@ -27,6 +34,273 @@ public interface GhastCoreAPI {
      */
     String getPlayerData(String playerUUID, String namespace, String key);
 
+    /**
+     * Retrieves an int value. Values stored as text are parsed.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param defaultValue The value returned when nothing is stored or it is not a number.
+     * @return The stored value or the default.
+     */
+    int getInt(String playerUUID, String namespace, String key, int defaultValue);
+
+    /**
+     * Retrieves a long value. Values stored as text are parsed.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param defaultValue The value returned when nothing is stored or it is not a number.
+     * @return The stored value or the default.
+     */
+    long getLong(String playerUUID, String namespace, String key, long defaultValue);
+
+    /**
+     * Retrieves a double value. Values stored as text are parsed.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param defaultValue The value returned when nothing is stored or it is not a number.
+     * @return The stored value or the default.
+     */
+    double getDouble(String playerUUID, String namespace, String key, double defaultValue);
+
+    /**
+     * Retrieves a binary value.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @return A copy of the stored bytes, or null if nothing or a non-binary value is stored.
+     */
+    byte[] getBytes(String playerUUID, String namespace, String key);
+
+    /**
+     * Retrieves a value as the given type. Works for String, Integer, Long, Double, Boolean, byte[]
+     * and any type with a registered {@link DataCodec}.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param type The expected type.
+     * @return The stored value, or null if not found or not convertible to the type.
+     */
+    <T> T get(String playerUUID, String namespace, String key, Class<T> type);
+
+    /**
+     * Stores an int value.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param value The value to store.
+     */
+    void putInt(String playerUUID, String namespace, String key, int value);
+
+    /**
+     * Stores a long value.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param value The value to store.
+     */
+    void putLong(String playerUUID, String namespace, String key, long value);
+
+    /**
+     * Stores a double value.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param value The value to store.
+     */
+    void putDouble(String playerUUID, String namespace, String key, double value);
+
+    /**
+     * Stores a binary value. The array is copied.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param value The bytes to store, or null to remove the value.
+     */
+    void putBytes(String playerUUID, String namespace, String key, byte[] value);
+
+    /**
+     * Stores a value of a built-in type or of a type with a registered {@link DataCodec}.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param value The value to store, or null to remove the value.
+     * @throws IllegalArgumentException If no codec is registered for the value's type.
+     */
+    void put(String playerUUID, String namespace, String key, Object value);
+
+    /**
+     * Adds to a numeric value and returns the result. Concurrent increments of one key are never
+     * lost on this server, and the new value is written with the next flush, so frequent updates
+     * of a key cost one database write per flush. Values stored as text are parsed; anything that
+     * is not a number counts as 0.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param delta The amount to add, negative to subtract.
+     * @return The value after adding.
+     */
+    long increment(String playerUUID, String namespace, String key, long delta);
+
+    /**
+     * Stores {@code newValue} only if the current value equals {@code expected}, atomically on this
+     * server. Numbers of different types compare by value. Written with the next flush, like {@link #increment}.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param expected The value expected to be stored, or null for none.
+     * @param newValue The value to store.
+     * @return True if the value was replaced.
+     */
+    boolean compareAndSet(String playerUUID, String namespace, String key, Object expected, Object newValue);
+
+    /**
+     * Replaces the value with the result of {@code update}, atomically on this server, and returns
+     * the previous value. Keep the function short and free of side effects; it runs under a lock.
+     * Written with the next flush, like {@link #increment}.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param update Computes the new value from the current one (null if none); returning null removes the value.
+     * @return The previous value, or null if none.
+     */
+    Object getAndUpdate(String playerUUID, String namespace, String key, UnaryOperator<Object> update);
+
+    /**
+     * Registers a codec for storing a custom type. Register it again after every server start,
+     * before reading values of that type.
+     * @param codec The codec.
+     * @throws IllegalArgumentException If another type already uses the codec's id.
+     */
+    void registerCodec(DataCodec<?> codec);
+
+    /**
+     * Retrieves every key of a namespace for a player in one call.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @return A map of keys to stored values; empty if the namespace has no data.
+     */
+    Map<String, String> getPlayerDataBulk(String playerUUID, String namespace);
+
+    /**
+     * Streams the value of one key for every player that has it, in player UUID order. Results are
+     * read from the database a page at a time, so the stream works on any table size and holds one
+     * page in memory; it blocks while a page loads, so consume it off the main thread. Values still
+     * waiting in the write-behind buffer are not included.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @return A stream of the stored values.
+     */
+    Stream<PlayerDataEntry> scanPlayerData(String namespace, String key);
+
+    /**
+     * Streams the value of one key for every player that has it, reading {@code pageSize} rows per query.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param pageSize The number of rows fetched per query, at most 5000.
+     * @return A stream of the stored values.
+     * @see #scanPlayerData(String, String)
+     */
+    Stream<PlayerDataEntry> scanPlayerData(String namespace, String key, int pageSize);
+
+    /**
+     * Declares a key as ranked, so its numeric values are kept in an in-memory ranking. The ranking
+     * is built from the database the first time, and kept up to date by every store on this server.
+     * Keys can also be declared in the {@code rankings} list of the config.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @return A future that completes once the ranking is built.
+     */
+    CompletableFuture<Void> declareRanking(String namespace, String key);
+
+    /**
+     * Returns the highest ranked players of a declared ranking, without touching the database.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param count The number of players to return.
+     * @return The top players, highest score first; empty if the key is not ranked.
+     */
+    List<RankedEntry> getTopPlayers(String namespace, String key, int count);
+
+    /**
+     * Returns the players ranked from {@code fromRank} on, without touching the database.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param fromRank The 1-based rank of the first player returned.
+     * @param count The number of players to return.
+     * @return The players in rank order; empty if the key is not ranked.
+     */
+    List<RankedEntry> getRankRange(String namespace, String key, int fromRank, int count);
+
+    /**
+     * Returns a player's rank in a declared ranking, without touching the database.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @return The 1-based rank, or -1 if the player has no numeric value or the key is not ranked.
+     */
+    int getRank(String playerUUID, String namespace, String key);
+
+    /**
+     * Stores player data without blocking the calling thread.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @param value The value to store.
+     * @return A future that completes once the value has been stored.
+     */
+    CompletableFuture<Void> storePlayerDataAsync(String playerUUID, String namespace, String key, String value);
+
+    /**
+     * Retrieves player data without blocking the calling thread.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param key The key for the data.
+     * @return A future holding the stored value, or null if not found.
+     */
+    CompletableFuture<String> getPlayerDataAsync(String playerUUID, String namespace, String key);
+
+    /**
+     * Stores several keys of one namespace in a single batch without blocking the calling thread.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param values The keys and values to store.
+     * @return A future that completes once all values have been stored.
+     */
+    CompletableFuture<Void> storePlayerDataBatchAsync(String playerUUID, String namespace, Map<String, String> values);
+
+    /**
+     * Retrieves several keys of one namespace in a single query without blocking the calling thread.
+     * @param playerUUID The UUID of the player.
+     * @param namespace The namespace for the data.
+     * @param keys The keys to look up.
+     * @return A future holding the found keys and values; missing keys are left out.
+     */
+    CompletableFuture<Map<String, String>> getPlayerDataBatchAsync(String playerUUID, String namespace, Collection<String> keys);
+
+    /**
+     * Returns an executor that runs tasks on the server main thread, for finishing async calls,
+     * e.g. {@code api.getPlayerDataAsync(...).thenAcceptAsync(value -> ..., api.mainThreadExecutor())}.
+     * @return The main thread executor.
+     */
+    Executor mainThreadExecutor();
+
+    /**
+     * Returns this extension's task scheduler. Prefer it over own thread pools and Bukkit tasks:
+     * main-thread work is spread over ticks within a shared budget, async work runs on virtual
+     * threads, and everything is cancelled when the extension is unloaded.
+     * @return The task scheduler.
+     */
+    TaskScheduler getScheduler();
+
+    /**
+     * Returns this extension's view of the event bus shared by all extensions. Handlers it
+     * registers are removed when the extension is unloaded.
+     * @return The event bus.
+     */
+    EventBus getEventBus();
+
     /**
      * Clears the cache for a specific player.
      * @param playerId The UUID of the player.
@@ -39,12 +313,30 @@ public interface GhastCoreAPI {
      */
     Map<String, ExtensionInfo> getLoadedExtensions();
 
+    /**
+     * Logs a debug message, shown only with {@code logging.level: DEBUG}.
+     * @param message The message to log.
+     */
+    void logDebug(String message);
+
+    /**
+     * Logs a debug message, building it only if debug logging is enabled.
+     * @param message Supplies the message to log.
+     */
+    void logDebug(Supplier<String> message);
+
     /**
      * Logs an informational message.
      * @param message The message to log.
      */
     void logInfo(String message);
 
+    /**
+     * Logs an informational message, building it only if info logging is enabled.
+     * @param message Supplies the message to log.
+     */
+    void logInfo(Supplier<String> message);
+
     /**
      * Logs a warning message.
      * @param message The message to log.
@@ -56,4 +348,11 @@ public interface GhastCoreAPI {
      * @param message The message to log.
      */
     void logSevere(String message);
+
+    /**
+     * Logs a severe error message with the exception that caused it.
+     * @param message The message to log.
+     * @param thrown The exception, logged with its stack trace.
+     */
+    void logSevere(String message, Throwable thrown);
 }
\ No newline at end of file
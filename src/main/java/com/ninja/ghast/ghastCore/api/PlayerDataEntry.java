@@ -0,0 +1,22 @@
+package com.ninja.ghast.ghastCore.api;
+
+import com.ninja.ghast.ghastCore.DataValues;
+
+import java.util.UUID;
+
+/**
+ * One stored value of one player, as returned by cross-player scans.
+ * @param playerId The UUID of the player.
+ * @param namespace The namespace of the data.
+ * @param key The key of the data.
+ * @param value The stored value: a String, Integer, Long, Double, Boolean, byte[] or a type with a registered {@link DataCodec}.
+ */
+public record PlayerDataEntry(UUID playerId, String namespace, String key, Object value) {
+    /**
+     * Returns the value as text, the way {@link GhastCoreAPI#getPlayerData} would.
+     * @return The value as text, or null if it has no text form.
+     */
+    public String stringValue() {
+        return DataValues.asString(value);
+    }
+}
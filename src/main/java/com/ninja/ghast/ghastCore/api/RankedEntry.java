@@ -0,0 +1,12 @@
+package com.ninja.ghast.ghastCore.api;
+
+import java.util.UUID;
+
+/**
+ * A player's position in a ranking.
+ * @param playerId The UUID of the player.
+ * @param score The ranked value.
+ * @param rank The 1-based rank, 1 being the highest score.
+ */
+public record RankedEntry(UUID playerId, double score, int rank) {
+}
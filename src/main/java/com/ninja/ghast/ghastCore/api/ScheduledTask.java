@@ -0,0 +1,21 @@
+package com.ninja.ghast.ghastCore.api;
+
+/**
+ * A task handed to a {@link TaskScheduler}.
+ */
+public interface ScheduledTask {
+    /**
+     * Stops the task from running again. A running async task is interrupted.
+     */
+    void cancel();
+
+    /**
+     * @return True if the task was cancelled, by the extension or because it was unloaded.
+     */
+    boolean isCancelled();
+
+    /**
+     * @return True once a one-shot task has run or any task was cancelled.
+     */
+    boolean isDone();
+}
@@ -0,0 +1,24 @@
+package com.ninja.ghast.ghastCore.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method as a handler for {@link EventBus#register}. The method takes exactly one
+ * parameter, the event type, and receives events of exactly that class.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Subscribe {
+    /**
+     * @return True to run the handler on GhastCore's async pool instead of the posting thread.
+     */
+    boolean async() default false;
+
+    /**
+     * @return The order among handlers of the same event and lane; higher runs first.
+     */
+    int priority() default 0;
+}
@@ -0,0 +1,98 @@
+package com.ninja.ghast.ghastCore.api;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs an extension's tasks. Main-thread tasks share a per-tick time budget
+ * ({@code scheduler.tick-budget-ms}): once a tick has used it, the remaining tasks wait for the
+ * next tick instead of stretching this one. Async tasks run on GhastCore's shared virtual-thread
+ * pool. Every task is cancelled when its extension is unloaded.
+ */
+public interface TaskScheduler {
+    /**
+     * Queues a task for the main thread. It runs in the next tick with budget left.
+     * @param task The task.
+     * @return A handle for cancelling the task.
+     */
+    ScheduledTask runSync(Runnable task);
+
+    /**
+     * Queues a task for the main thread after a delay.
+     * @param task The task.
+     * @param delayTicks Ticks to wait before queueing it.
+     * @return A handle for cancelling the task.
+     */
+    ScheduledTask runSyncLater(Runnable task, long delayTicks);
+
+    /**
+     * Queues a task for the main thread repeatedly. The period counts from the tick the task last ran in.
+     * @param task The task.
+     * @param delayTicks Ticks to wait before queueing it the first time.
+     * @param periodTicks Ticks between runs.
+     * @return A handle for cancelling the task.
+     */
+    ScheduledTask runSyncTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Runs a task on the shared async pool.
+     * @param task The task.
+     * @return A handle for cancelling the task.
+     */
+    ScheduledTask runAsync(Runnable task);
+
+    /**
+     * Runs a task on the shared async pool after a delay.
+     * @param task The task.
+     * @param delay How long to wait.
+     * @param unit The unit of the delay.
+     * @return A handle for cancelling the task.
+     */
+    ScheduledTask runAsyncLater(Runnable task, long delay, TimeUnit unit);
+
+    /**
+     * Runs a task on the shared async pool repeatedly. The period counts from the end of the previous run, so runs never overlap.
+     * @param task The task.
+     * @param delay How long to wait before the first run.
+     * @param period How long to wait between runs.
+     * @param unit The unit of the delay and period.
+     * @return A handle for cancelling the task.
+     */
+    ScheduledTask runAsyncTimer(Runnable task, long delay, long period, TimeUnit unit);
+
+    /**
+     * Computes a value on the main thread, within the tick budget.
+     * @param supplier The computation.
+     * @return A future completed on the main thread; cancelled if the extension is unloaded first.
+     */
+    <T> CompletableFuture<T> supplySync(Supplier<T> supplier);
+
+    /**
+     * Computes a value on the shared async pool.
+     * @param supplier The computation.
+     * @return A future holding the value; cancelled if the extension is unloaded first.
+     */
+    <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier);
+
+    /**
+     * @return An executor queueing tasks for the main thread like {@link #runSync}.
+     */
+    Executor syncExecutor();
+
+    /**
+     * @return An executor running tasks on the shared async pool like {@link #runAsync}.
+     */
+    Executor asyncExecutor();
+
+    /**
+     * @return The number of this extension's tasks scheduled and not yet done.
+     */
+    int pendingTasks();
+
+    /**
+     * Cancels every task of this extension.
+     */
+    void cancelAll();
+}
@@ -0,0 +1,124 @@
+package com.ninja.ghast.ghastCore;
+
+import com.ninja.ghast.ghastCore.api.EventBus;
+import com.ninja.ghast.ghastCore.api.Subscribe;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class EventDispatcherTest {
+
+    /**
+     * Handlers of an extension's listener, loaded by its own class loader as extensions are.
+     */
+    public static class IsolatedListener {
+        private final List<String> received;
+
+        public IsolatedListener(List<String> received) {
+            this.received = received;
+        }
+
+        @Subscribe
+        void onEvent(String event) {
+            received.add("sync:" + event);
+        }
+
+        @Subscribe(priority = 1)
+        private static void onEventFirst(String event) {
+            // Static handlers are bound without a receiver
+        }
+
+        @Subscribe
+        Object onNumber(Integer event) {
+            received.add("number:" + event);
+            return event;
+        }
+
+        public static MethodHandles.Lookup lookup() {
+            return MethodHandles.lookup();
+        }
+    }
+
+    @Test
+    void registersListenerFromAnotherClassLoader() throws Exception {
+        Class<?> type = new IsolatingClassLoader(IsolatedListener.class.getName()).loadClass(IsolatedListener.class.getName());
+        assertNotSame(IsolatedListener.class, type);
+        assertNotSame(EventDispatcher.class.getModule(), type.getModule());
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        Object listener = type.getConstructor(List.class).newInstance(received);
+        EventBus bus = newDispatcher().forOwner("extension");
+        bus.register(listener);
+
+        bus.post("hello");
+        bus.post(7);
+        assertEquals(List.of("sync:hello", "number:7"), received);
+
+        bus.unregister(listener);
+        bus.post("ignored");
+        assertEquals(2, received.size());
+    }
+
+    @Test
+    void registersListenerWithTheExtensionsLookup() throws Exception {
+        Class<?> type = new IsolatingClassLoader(IsolatedListener.class.getName()).loadClass(IsolatedListener.class.getName());
+        List<String> received = new CopyOnWriteArrayList<>();
+        Object listener = type.getConstructor(List.class).newInstance(received);
+        MethodHandles.Lookup lookup = (MethodHandles.Lookup) type.getMethod("lookup").invoke(null);
+        EventBus bus = newDispatcher().forOwner("extension");
+        bus.register(listener, lookup);
+
+        bus.post("hello");
+        assertEquals(List.of("sync:hello"), received);
+    }
+
+    private static EventDispatcher newDispatcher() {
+        LogManager logger = new LogManager(Logger.getLogger("EventDispatcherTest"), new YamlConfiguration());
+        return new EventDispatcher(Runnable::run, logger, new MetricsRegistry());
+    }
+
+    /**
+     * Defines one class itself and delegates everything else, like a plugin class loader
+     * sharing GhastCore's API classes.
+     */
+    private static final class IsolatingClassLoader extends ClassLoader {
+        private final String isolated;
+
+        IsolatingClassLoader(String isolated) {
+            super(EventDispatcherTest.class.getClassLoader());
+            this.isolated = isolated;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(isolated)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    String resource = name.replace('.', '/') + ".class";
+                    try (InputStream in = getParent().getResourceAsStream(resource)) {
+                        if (in == null) {
+                            throw new ClassNotFoundException(name);
+                        }
+                        byte[] bytes = in.readAllBytes();
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return loaded;
+            }
+        }
+    }
+}